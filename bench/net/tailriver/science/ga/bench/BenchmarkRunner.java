@@ -0,0 +1,28 @@
+package net.tailriver.science.ga.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports allocation per
+ * operation ({@code gc.alloc.rate.norm}). Arguments are JMH command line
+ * options, e.g. {@code OperatorBenchmark -p bits=1024}.
+ *
+ * @author tailriver
+ *
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException,
+			CommandLineOptionException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options).addProfiler(GCProfiler.class);
+		if (options.getIncludes().isEmpty())
+			builder.include(BenchmarkRunner.class.getPackage().getName());
+		new Runner(builder.build()).run();
+	}
+}
@@ -0,0 +1,51 @@
+package net.tailriver.science.ga.bench;
+
+import java.util.Random;
+
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+
+/**
+ * Chromosomes shared by the benchmarks.
+ *
+ * @author tailriver
+ *
+ */
+final class Chromosomes {
+	/** bit size of a gene; 22 bits is the resolution used by the demos. */
+	static final int GENE_BITS = 22;
+
+	private Chromosomes() {
+	}
+
+	/**
+	 * Creates a geno-type of 22-bit genes, the last one shorter if
+	 * {@code bits} is not a multiple of 22.
+	 *
+	 * @param bits
+	 *            total bit length.
+	 * @return zero-filled geno-type.
+	 */
+	static GenoType inflate(int bits) {
+		GenoType.Creator creator = new GenoType.Creator();
+		if (bits >= GENE_BITS)
+			creator.append(GENE_BITS, bits / GENE_BITS);
+		if (bits % GENE_BITS != 0)
+			creator.append(bits % GENE_BITS);
+		return creator.inflate();
+	}
+
+	/**
+	 *
+	 * @param bits
+	 *            total bit length.
+	 * @param random
+	 *            random generator.
+	 * @return individual with random chromosome.
+	 */
+	static Individual randomIndividual(int bits, Random random) {
+		Individual i = new Individual(inflate(bits));
+		i.randomize(random);
+		return i;
+	}
+}
@@ -0,0 +1,91 @@
+package net.tailriver.science.ga.bench;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Mask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Accessors and bit operations of {@link GenoType}.
+ *
+ * <p>
+ * {@link #swap()} uses a mask of uniform crossover (half of the bits), and
+ * {@link #invert()} a mask of mutation (1% of the bits, at least one).
+ * Getters read the gene in the middle of the chromosome.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenoTypeBenchmark {
+	@Param({ "22", "1024", "65536", "1048576" })
+	public int bits;
+
+	private GenoType a;
+	private GenoType b;
+	private Mask swapMask;
+	private Mask invertMask;
+	private int gene;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		a = Chromosomes.inflate(bits);
+		b = Chromosomes.inflate(bits);
+		new Individual(a).randomize(random);
+		new Individual(b).randomize(random);
+
+		swapMask = a.getMask();
+		invertMask = a.getMask();
+		for (int i = 0; i < bits; i++) {
+			if (random.nextBoolean())
+				swapMask.set(i);
+		}
+		for (int k = 0, n = Math.max(1, bits / 100); k < n; k++)
+			invertMask.set(random.nextInt(bits));
+		gene = a.length / 2;
+	}
+
+	@Benchmark
+	public long getLong() {
+		return a.getLong(gene);
+	}
+
+	@Benchmark
+	public BitSet getBitSet() {
+		return a.getBitSet(gene);
+	}
+
+	@Benchmark
+	public GenoType swap() {
+		GenoType.swap(a, b, swapMask);
+		return a;
+	}
+
+	@Benchmark
+	public GenoType invert() {
+		a.invert(invertMask);
+		return a;
+	}
+}
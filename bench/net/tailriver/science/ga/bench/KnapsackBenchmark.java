@@ -0,0 +1,139 @@
+package net.tailriver.science.ga.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.BitSlicedEvaluator;
+import net.tailriver.science.ga.BitSlicedPopulation;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.LinearObjective;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of a knapsack population, as in the KNAPSACK problem of the
+ * demo suite: total weight and price of each individual.
+ *
+ * <p>
+ * {@link #perBit()} adds the weights of set bits one by one,
+ * {@link #lookupTable()} uses {@link LinearObjective}, and
+ * {@link #bitSliced()} transposes {@value BitSlicedPopulation#LANES}
+ * individuals at a time into a {@link BitSlicedPopulation} and sums them with
+ * {@link BitSlicedEvaluator}, transposition included. All of them return the
+ * same total of penalized fitness.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KnapsackBenchmark {
+	@Param({ "50", "1024" })
+	public int bits;
+
+	@Param({ "1024" })
+	public int size;
+
+	private int[] weights;
+	private int[] prices;
+	private int capacity;
+	private List<Individual> population;
+
+	private int[] totals;
+	private LinearObjective objective;
+
+	private BitSlicedPopulation sliced;
+	private BitSlicedEvaluator weightEvaluator;
+	private BitSlicedEvaluator priceEvaluator;
+	private int[] laneWeights;
+	private int[] lanePrices;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		weights = new int[bits];
+		prices = new int[bits];
+		int total = 0;
+		for (int i = 0; i < bits; i++) {
+			weights[i] = 1 + random.nextInt(100);
+			prices[i] = 1 + random.nextInt(100);
+			total += weights[i];
+		}
+		capacity = total / 2;
+		population = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+			population.add(Chromosomes.randomIndividual(bits, random));
+
+		totals = new int[2];
+		objective = new LinearObjective(weights, prices);
+
+		sliced = new BitSlicedPopulation(bits);
+		weightEvaluator = new BitSlicedEvaluator(weights);
+		priceEvaluator = new BitSlicedEvaluator(prices);
+		laneWeights = new int[BitSlicedPopulation.LANES];
+		lanePrices = new int[BitSlicedPopulation.LANES];
+	}
+
+	private long fitness(int weight, int price) {
+		return weight > capacity ? price - 100L * (weight - capacity) : price;
+	}
+
+	@Benchmark
+	public long perBit() {
+		long sum = 0;
+		for (Individual i : population) {
+			long[] words = i.toGenoTypeLongArray();
+			int weight = 0;
+			int price = 0;
+			for (int w = 0; w < words.length; w++) {
+				for (long v = words[w]; v != 0; v &= v - 1) {
+					int b = w << 6 | Long.numberOfTrailingZeros(v);
+					weight += weights[b];
+					price += prices[b];
+				}
+			}
+			sum += fitness(weight, price);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long lookupTable() {
+		long sum = 0;
+		for (Individual i : population) {
+			objective.evaluate(i.toGenoTypeLongArray(), totals);
+			sum += fitness(totals[0], totals[1]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long bitSliced() {
+		long sum = 0;
+		for (int from = 0; from < size; from += BitSlicedPopulation.LANES) {
+			int n = sliced.load(population, from);
+			weightEvaluator.evaluate(sliced, laneWeights);
+			priceEvaluator.evaluate(sliced, lanePrices);
+			for (int j = 0; j < n; j++)
+				sum += fitness(laneWeights[j], lanePrices[j]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,71 @@
+package net.tailriver.science.ga.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.Individual;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mutation and crossover operators of {@link Individual}. Mutation flips one
+ * bit per chromosome on average.
+ *
+ * @author tailriver
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OperatorBenchmark {
+	@Param({ "22", "1024", "65536", "1048576" })
+	public int bits;
+
+	private Random random;
+	private Individual x;
+	private Individual y;
+
+	@Setup
+	public void setUp() {
+		random = new Random(1);
+		x = Chromosomes.randomIndividual(bits, random);
+		y = Chromosomes.randomIndividual(bits, random);
+	}
+
+	@Benchmark
+	public Individual mutate() {
+		x.mutate(random, 1d / bits);
+		return x;
+	}
+
+	@Benchmark
+	public Individual crossOverSinglePoint() {
+		Individual.crossOverSinglePoint(x, y, random);
+		return x;
+	}
+
+	@Benchmark
+	public Individual crossOverTwoPoint() {
+		Individual.crossOverTwoPoint(x, y, random);
+		return x;
+	}
+
+	@Benchmark
+	public Individual crossOverUniform() {
+		Individual.crossOverUniform(x, y, random);
+		return x;
+	}
+}
@@ -0,0 +1,128 @@
+package net.tailriver.science.ga.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.Individual;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selection and sorting of a population.
+ *
+ * <p>
+ * Fitness is a fresh random number on every evaluation, so each
+ * {@link #sort()} sorts a shuffled order as in a real generation. The time
+ * includes the evaluation of the whole population, which only draws a random
+ * number and sets it per individual.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PopulationBenchmark {
+	@Param({ "22", "1024", "65536" })
+	public int bits;
+
+	@Param({ "32", "1024", "8192" })
+	public int size;
+
+	private Random random;
+	private List<Individual> candidates;
+	private Population population;
+
+	/** random fitness. */
+	static class RandomPlan implements GeneticAlgorithmPlan<Individual> {
+		private final Random random = new Random(1);
+		private final int bits;
+
+		RandomPlan(int bits) {
+			this.bits = bits;
+		}
+
+		@Override
+		public Individual inflateIndividual() {
+			return Chromosomes.randomIndividual(bits, random);
+		}
+
+		@Override
+		public Random getRandom() {
+			return random;
+		}
+
+		@Override
+		public void calculateFitness(List<Individual> population) {
+			for (Individual i : population)
+				i.setFitness(random.nextDouble());
+		}
+
+		@Override
+		public void applyCrossOver(Individual x, Individual y) {
+			Individual.crossOverTwoPoint(x, y, random);
+		}
+
+		@Override
+		public List<Individual> applySelection(List<Individual> population) {
+			return GeneticAlgorithm.selectTournament(population, random,
+					population.size(), 2);
+		}
+	}
+
+	/** exposes {@link GeneticAlgorithm#sort()}. */
+	static class Population extends GeneticAlgorithm<Individual> {
+		Population(GeneticAlgorithmPlan<Individual> plan, int size) {
+			super(plan, size);
+		}
+
+		void resort() {
+			// invalidates the order; sort() evaluates everyone again
+			setComparator(getComparator());
+			sort();
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		random = new Random(1);
+		RandomPlan plan = new RandomPlan(bits);
+		population = new Population(plan, size);
+		Individual[] array = new Individual[size];
+		for (int i = 0; i < size; i++) {
+			array[i] = plan.inflateIndividual();
+			array[i].setFitness(random.nextDouble());
+		}
+		Arrays.sort(array);
+		candidates = Arrays.asList(array);
+	}
+
+	@Benchmark
+	public List<Individual> selectTournament() {
+		return GeneticAlgorithm.selectTournament(candidates, random, size, 2);
+	}
+
+	@Benchmark
+	public Population sort() {
+		population.resort();
+		return population;
+	}
+}
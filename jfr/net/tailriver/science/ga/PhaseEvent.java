@@ -0,0 +1,49 @@
+package net.tailriver.science.ga;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a phase of a generation. This source folder needs
+ * JDK 11 or later; {@link Instrumentation} loads {@link Recorder} by name, so
+ * that the rest of the library builds and runs without it.
+ *
+ * @author tailriver
+ *
+ */
+@Name("net.tailriver.science.ga.Phase")
+@Label("Genetic Algorithm Phase")
+@Description("A phase of a generation of a genetic algorithm")
+@Category("Genetic Algorithm")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+	@Label("Phase")
+	String phase;
+
+	@Label("Individuals")
+	int individuals;
+
+	/** Creates phase events for {@link Instrumentation}. */
+	static final class Recorder implements Instrumentation.EventRecorder {
+		@Override
+		public Object begin(Instrumentation.Phase phase) {
+			PhaseEvent event = new PhaseEvent();
+			if (!event.isEnabled())
+				return null;
+			event.phase = phase.name();
+			event.begin();
+			return event;
+		}
+
+		@Override
+		public void commit(Object event, int individuals) {
+			PhaseEvent e = (PhaseEvent) event;
+			e.individuals = individuals;
+			e.commit();
+		}
+	}
+}
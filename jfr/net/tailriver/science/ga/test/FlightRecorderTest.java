@@ -0,0 +1,39 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.tailriver.science.ga.Instrumentation;
+import net.tailriver.science.ga.Instrumentation.Phase;
+
+import org.junit.Test;
+
+public class FlightRecorderTest {
+	@Test
+	public void testPhaseEvents() throws Exception {
+		Path file = Files.createTempFile("phases", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("net.tailriver.science.ga.Phase");
+			recording.start();
+			InstrumentationTest.evolve(new Instrumentation(), new OneMax(80, 1),
+					3);
+			recording.stop();
+			recording.dump(file);
+
+			int events = 0;
+			for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+				if (e.getEventType().getName()
+						.equals("net.tailriver.science.ga.Phase"))
+					events++;
+			}
+			assertEquals(3 * Phase.values().length, events);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * JNI bridge of net.tailriver.science.ga.NativeBatchEvaluator.
+ *
+ * It looks up a fitness kernel in a shared library and calls it once per
+ * batch on the memory of direct buffers, without copying.
+ */
+#include <dlfcn.h>
+#include <stdint.h>
+#include <jni.h>
+
+typedef void (*kernel_t)(const uint64_t *words, int32_t count,
+		int32_t words_per_individual, double *fitness);
+
+JNIEXPORT jlong JNICALL
+Java_net_tailriver_science_ga_NativeBatchEvaluator_lookup(JNIEnv *env,
+		jclass cls, jstring library, jstring symbol)
+{
+	const char *l = (*env)->GetStringUTFChars(env, library, NULL);
+	const char *s = (*env)->GetStringUTFChars(env, symbol, NULL);
+	void *function = NULL;
+	void *handle = dlopen(l, RTLD_NOW | RTLD_LOCAL);
+
+	if (handle != NULL)
+		function = dlsym(handle, s);
+	(*env)->ReleaseStringUTFChars(env, library, l);
+	(*env)->ReleaseStringUTFChars(env, symbol, s);
+
+	if (function == NULL) {
+		jclass error = (*env)->FindClass(env, "java/lang/UnsatisfiedLinkError");
+		if (error != NULL)
+			(*env)->ThrowNew(env, error, dlerror());
+		return 0;
+	}
+	return (jlong) (intptr_t) function;
+}
+
+JNIEXPORT void JNICALL
+Java_net_tailriver_science_ga_NativeBatchEvaluator_invoke(JNIEnv *env,
+		jclass cls, jlong function, jobject words, jint count,
+		jint words_per_individual, jobject fitness)
+{
+	kernel_t kernel = (kernel_t) (intptr_t) function;
+	kernel((const uint64_t *) (*env)->GetDirectBufferAddress(env, words),
+			count, words_per_individual,
+			(double *) (*env)->GetDirectBufferAddress(env, fitness));
+}
@@ -0,0 +1,16 @@
+/*
+ * Test kernel for net.tailriver.science.ga.NativeBatchEvaluator: fitness is
+ * the number of 1 bits.
+ */
+#include <stdint.h>
+
+void popcount(const uint64_t *words, int32_t count,
+		int32_t words_per_individual, double *fitness)
+{
+	for (int32_t i = 0; i < count; i++) {
+		int ones = 0;
+		for (int32_t j = 0; j < words_per_individual; j++)
+			ones += __builtin_popcountll(*words++);
+		fitness[i] = ones;
+	}
+}
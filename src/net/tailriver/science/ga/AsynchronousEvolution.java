@@ -0,0 +1,157 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous master-worker evolution without a generation barrier.
+ *
+ * <p>
+ * Offspring are bred by a {@link SteadyStateGeneticAlgorithm} on the calling
+ * (master) thread and evaluated by workers of an {@link ExecutorService}. As
+ * soon as any evaluation finishes, the offspring is integrated into the
+ * population and a new one is bred and dispatched, so workers never wait for
+ * the slowest evaluation of a generation. The number of evaluations in flight
+ * is bounded.
+ * </p>
+ *
+ * <p>
+ * {@link GeneticAlgorithmPlan#calculateFitness(List)} is called from worker
+ * threads with one individual at a time and must be thread-safe. Other
+ * methods of the plan are called only from the master thread.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class AsynchronousEvolution<T extends Individual> {
+	private final SteadyStateGeneticAlgorithm<T> engine;
+	private final ExecutorService executor;
+	private final int maxInFlight;
+
+	/**
+	 *
+	 * @param engine
+	 *            engine to breed and integrate offspring.
+	 * @param executor
+	 *            workers to evaluate offspring. It is not shut down by this
+	 *            object.
+	 * @param maxInFlight
+	 *            maximum number of evaluations in flight. It should be
+	 *            somewhat larger than the number of workers.
+	 * @throws NullPointerException
+	 *             if {@code engine} or {@code executor} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code maxInFlight} is less than 1.
+	 */
+	public AsynchronousEvolution(SteadyStateGeneticAlgorithm<T> engine,
+			ExecutorService executor, int maxInFlight) {
+		if (engine == null || executor == null)
+			throw new NullPointerException();
+		if (maxInFlight < 1)
+			throw new IllegalArgumentException("maxInFlight < 1: "
+					+ maxInFlight);
+		this.engine = engine;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Evolves until the specified number of offspring are integrated.
+	 *
+	 * @param offspring
+	 *            number of offspring to breed. An offspring which equals its
+	 *            parent is integrated without evaluation but still counts, so
+	 *            the run ends even if no offspring differs from its parent.
+	 * @param crossoverRate
+	 *            probability of crossover.
+	 * @param mutationRate
+	 *            see {@link Individual#mutate(java.util.Random, double)}.
+	 * @return number of integrated offspring (including ones which need no
+	 *         evaluation because they equal their parent). It equals
+	 *         {@code offspring} unless an exception is thrown.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted. Evaluations in flight
+	 *             are cancelled.
+	 * @throws IllegalArgumentException
+	 *             if rates are NaN, less than 0 or greater than 1.
+	 * @throws IllegalStateException
+	 *             if fitness of an offspring is still invalid after
+	 *             evaluation.
+	 * @throws RuntimeException
+	 *             if an evaluation fails. Evaluations in flight are cancelled.
+	 */
+	public long run(long offspring, double crossoverRate, double mutationRate)
+			throws InterruptedException {
+		final GeneticAlgorithmPlan<T> plan = engine.plan;
+		CompletionService<T> service = new ExecutorCompletionService<>(executor);
+		List<Future<T>> inFlight = new ArrayList<>();
+		Deque<T> bred = new ArrayDeque<>();
+		long produced = 0;
+		long integrated = 0;
+
+		try {
+			for (;;) {
+				// keep workers busy
+				while (inFlight.size() < maxInFlight
+						&& produced < offspring) {
+					if (bred.isEmpty())
+						bred.addAll(engine.breed(crossoverRate, mutationRate));
+					final T child = bred.poll();
+					produced++;
+					if (child.hasFitness()) {
+						// same as a parent; nothing to evaluate
+						engine.integrate(child);
+						integrated++;
+						continue;
+					}
+					inFlight.add(service.submit(new Callable<T>() {
+						@Override
+						public T call() {
+							plan.calculateFitness(Collections
+									.singletonList(child));
+							return child;
+						}
+					}));
+				}
+				if (inFlight.isEmpty())
+					break;
+
+				Future<T> done = service.take();
+				inFlight.remove(done);
+				T child = done.get();
+				engine.addEvaluations(1);
+				engine.integrate(child);
+				integrated++;
+			}
+		} catch (ExecutionException e) {
+			cancel(inFlight);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("evaluation failed", cause);
+		} catch (InterruptedException | RuntimeException e) {
+			cancel(inFlight);
+			throw e;
+		}
+		return integrated;
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> f : futures)
+			f.cancel(true);
+	}
+}
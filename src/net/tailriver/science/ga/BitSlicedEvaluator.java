@@ -0,0 +1,99 @@
+package net.tailriver.science.ga;
+
+/**
+ * Weighted-sum objective evaluated over a {@link BitSlicedPopulation}.
+ *
+ * <p>
+ * It calculates <code>&Sigma;<sub>b</sub> weights[b] &times; bit<sub>b</sub></code>
+ * for all {@value BitSlicedPopulation#LANES} lanes together. The sum is kept in
+ * a bit-sliced accumulator (one <code>long</code> per bit of the sum), and each
+ * set bit of each weight is added into it by a ripple-carry adder of
+ * AND/XOR operations. Knapsack weights and prices, or set-cover counts, are
+ * typical weight vectors.
+ * </p>
+ *
+ * <p>
+ * This object keeps a work area and is not thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public final class BitSlicedEvaluator {
+	private final int[] weights;
+	private final long[] accumulator;
+
+	/**
+	 *
+	 * @param weights
+	 *            weight of each chromosome bit. It is copied.
+	 * @throws NullPointerException
+	 *             if {@code weights} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code weights} contains negative value, or the total of
+	 *             weights exceeds {@link Integer#MAX_VALUE}.
+	 */
+	public BitSlicedEvaluator(int[] weights) {
+		long total = 0;
+		for (int w : weights) {
+			if (w < 0)
+				throw new IllegalArgumentException("negative weight: " + w);
+			total += w;
+		}
+		if (total > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("total weight overflows: "
+					+ total);
+
+		this.weights = weights.clone();
+		accumulator = new long[Long.SIZE - Long.numberOfLeadingZeros(total)];
+	}
+
+	/**
+	 * Calculates weighted sums of all lanes in use.
+	 *
+	 * @param population
+	 *            bit-sliced chromosomes.
+	 * @param result
+	 *            array to store sums; {@code result[j]} is the sum of lane
+	 *            {@code j}. It is reused if its length is enough, otherwise
+	 *            (or if it is <code>null</code>) a new array is allocated.
+	 * @return the result.
+	 * @throws IllegalArgumentException
+	 *             if bit length of {@code population} differs from the length
+	 *             of weights.
+	 */
+	public int[] evaluate(BitSlicedPopulation population, int[] result) {
+		if (population.getBitLength() != weights.length)
+			throw new IllegalArgumentException("bit length must be "
+					+ weights.length + ": " + population.getBitLength());
+		int size = population.size();
+		if (result == null || result.length < size)
+			result = new int[size];
+
+		long[] acc = accumulator;
+		for (int p = 0; p < acc.length; p++)
+			acc[p] = 0;
+
+		for (int b = 0; b < weights.length; b++) {
+			long plane = population.getPlane(b);
+			if (plane == 0)
+				continue;
+			for (int w = weights[b]; w != 0; w &= w - 1) {
+				long carry = plane;
+				for (int p = Integer.numberOfTrailingZeros(w); carry != 0; p++) {
+					long next = acc[p] & carry;
+					acc[p] ^= carry;
+					carry = next;
+				}
+			}
+		}
+
+		for (int j = 0; j < size; j++) {
+			int sum = 0;
+			for (int p = 0; p < acc.length; p++)
+				sum |= (int) (acc[p] >>> j & 1L) << p;
+			result[j] = sum;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,155 @@
+package net.tailriver.science.ga;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transposed (bit-sliced) storage of up to {@value #LANES} chromosomes.
+ *
+ * <p>
+ * Instead of one chromosome per object, this class keeps one <em>bit-plane</em>
+ * per chromosome bit: bit {@code j} of {@code getPlane(b)} is the bit
+ * {@code b} of the chromosome in lane {@code j}. Bitwise objectives can then
+ * handle all lanes with a single <code>long</code> operation, see
+ * {@link BitSlicedEvaluator}.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public final class BitSlicedPopulation {
+	/** number of chromosomes held at once. */
+	public static final int LANES = Long.SIZE;
+
+	private final long[] planes;
+	private int size;
+
+	/**
+	 *
+	 * @param bitLength
+	 *            bit length of chromosomes to hold.
+	 * @throws IllegalArgumentException
+	 *             if {@code bitLength} < 1.
+	 * @see GenoType#getBitLength()
+	 */
+	public BitSlicedPopulation(int bitLength) {
+		if (bitLength < 1)
+			throw new IllegalArgumentException("bitLength < 1: " + bitLength);
+		planes = new long[bitLength];
+	}
+
+	/**
+	 *
+	 * @return bit length of chromosomes.
+	 */
+	public int getBitLength() {
+		return planes.length;
+	}
+
+	/**
+	 *
+	 * @return number of lanes in use.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param bitIndex
+	 *            index of chromosome bit.
+	 * @return bit-plane; bit {@code j} is the value of lane {@code j}.
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public long getPlane(int bitIndex) {
+		return planes[bitIndex];
+	}
+
+	/**
+	 * Transposes geno-types of consecutive individuals into the lanes. Lanes
+	 * not loaded are cleared.
+	 *
+	 * @param population
+	 *            list of individuals.
+	 * @param from
+	 *            index of the first individual to load.
+	 * @return number of loaded individuals (at most {@value #LANES}).
+	 * @throws IllegalArgumentException
+	 *             if bit length of a geno-type differs.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code from} is out of range.
+	 */
+	public int load(List<? extends Individual> population, int from) {
+		if (from < 0 || from > population.size())
+			throw new IndexOutOfBoundsException("from: " + from);
+
+		Arrays.fill(planes, 0);
+		size = Math.min(LANES, population.size() - from);
+		for (int lane = 0; lane < size; lane++)
+			transpose(population.get(from + lane).genoType, lane);
+		return size;
+	}
+
+	/**
+	 * Transposes a geno-type into the specified lane.
+	 *
+	 * @param lane
+	 *            lane index (0 to {@value #LANES} - 1).
+	 * @param genoType
+	 *            geno-type to store.
+	 * @throws IllegalArgumentException
+	 *             if bit length of {@code genoType} differs.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code lane} is out of range.
+	 */
+	public void set(int lane, GenoType genoType) {
+		checkLane(lane);
+		long clear = ~(1L << lane);
+		for (int b = 0; b < planes.length; b++)
+			planes[b] &= clear;
+		transpose(genoType, lane);
+		size = Math.max(size, lane + 1);
+	}
+
+	/**
+	 * Transposes the specified lane back into a geno-type.
+	 *
+	 * @param lane
+	 *            lane index (0 to {@value #LANES} - 1).
+	 * @param genoType
+	 *            geno-type to overwrite.
+	 * @throws IllegalArgumentException
+	 *             if bit length of {@code genoType} differs.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code lane} is out of range.
+	 */
+	public void get(int lane, GenoType genoType) {
+		checkLane(lane);
+		checkBitLength(genoType);
+		long[] words = new long[(planes.length + Long.SIZE - 1) / Long.SIZE];
+		for (int b = 0; b < planes.length; b++)
+			words[b >>> 6] |= (planes[b] >>> lane & 1L) << b;
+		genoType.setLongArray(words);
+	}
+
+	private void transpose(GenoType genoType, int lane) {
+		checkBitLength(genoType);
+		long bit = 1L << lane;
+		long[] words = genoType.toLongArray();
+		for (int w = 0; w < words.length; w++) {
+			for (long v = words[w]; v != 0; v &= v - 1)
+				planes[w << 6 | Long.numberOfTrailingZeros(v)] |= bit;
+		}
+	}
+
+	private void checkLane(int lane) {
+		if (lane < 0 || lane >= LANES)
+			throw new IndexOutOfBoundsException("lane: " + lane);
+	}
+
+	private void checkBitLength(GenoType genoType) {
+		if (genoType.getBitLength() != planes.length)
+			throw new IllegalArgumentException("bit length must be "
+					+ planes.length + ": " + genoType.getBitLength());
+	}
+}
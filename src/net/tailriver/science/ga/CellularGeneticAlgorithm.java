@@ -0,0 +1,327 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Cellular (fine-grained) genetic algorithm.
+ *
+ * <p>
+ * Individuals live on a two-dimensional toroidal grid and mate only within
+ * their neighbourhood. In each generation every cell breeds one offspring with
+ * a neighbour chosen by binary tournament, by
+ * {@link GeneticAlgorithmPlan#applyCrossOver(Individual, Individual)} and
+ * {@link Individual#mutate(Random, double)}; the offspring replaces the cell
+ * if it is not worse.
+ * </p>
+ *
+ * <p>
+ * The grid is split into horizontal bands (tiles) which are processed on
+ * separate threads. The previous generation is kept read-only while the next
+ * one is written into a second grid, so rows of neighbouring tiles (the halo)
+ * are read directly without copying or locking. As a consequence,
+ * {@link GeneticAlgorithmPlan#applyCrossOver(Individual, Individual)} and
+ * {@link GeneticAlgorithmPlan#calculateFitness(List)} of the plan are called
+ * concurrently and must be thread-safe. Mate selection and mutation use a
+ * random generator per row seeded from {@link GeneticAlgorithmPlan#getRandom()},
+ * so the number of tiles does not change the result as long as the crossover
+ * of the plan is deterministic.
+ * </p>
+ *
+ * <p>
+ * Order of individuals is determined as {@link GeneticAlgorithm} does: the
+ * first one in the order (rank 1) is the best.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class CellularGeneticAlgorithm<T extends Individual> {
+	/** Cells regarded as neighbours. */
+	public enum Neighbourhood {
+		/** four adjacent cells. */
+		VON_NEUMANN(new int[][] { { 0, -1 }, { -1, 0 }, { 1, 0 }, { 0, 1 } }),
+		/** eight surrounding cells. */
+		MOORE(new int[][] { { -1, -1 }, { 0, -1 }, { 1, -1 }, { -1, 0 },
+				{ 1, 0 }, { -1, 1 }, { 0, 1 }, { 1, 1 } });
+
+		private final int[][] offsets;
+
+		private Neighbourhood(int[][] offsets) {
+			this.offsets = offsets;
+		}
+	}
+
+	protected final GeneticAlgorithmPlan<T> plan;
+	public final int width;
+	public final int height;
+	private final Neighbourhood neighbourhood;
+	private final int tiles;
+	private final ExecutorService executor;
+
+	private T[] grid;
+	private T[] next;
+	private Comparator<? super T> comparator;
+	private boolean evaluated;
+
+	/**
+	 *
+	 * @param plan
+	 *            the plan. It must be thread-safe as described above.
+	 * @param width
+	 *            width of the grid.
+	 * @param height
+	 *            height of the grid.
+	 * @param neighbourhood
+	 *            neighbourhood of a cell.
+	 * @param tiles
+	 *            number of tiles (and threads). It is limited to
+	 *            {@code height}.
+	 * @throws NullPointerException
+	 *             if {@code plan} or {@code neighbourhood} is
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if a size is less than 1.
+	 */
+	public CellularGeneticAlgorithm(GeneticAlgorithmPlan<T> plan, int width,
+			int height, Neighbourhood neighbourhood, int tiles) {
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("invalid grid: " + width
+					+ "x" + height);
+		if (tiles < 1)
+			throw new IllegalArgumentException("tiles < 1: " + tiles);
+		if (neighbourhood == null)
+			throw new NullPointerException();
+
+		this.plan = plan;
+		this.width = width;
+		this.height = height;
+		this.neighbourhood = neighbourhood;
+		this.tiles = Math.min(tiles, height);
+
+		grid = makePopulationArray(width * height);
+		next = makePopulationArray(width * height);
+		for (int i = 0; i < grid.length; i++) {
+			T individual = plan.inflateIndividual();
+			individual.activateWatcher();
+			grid[i] = individual;
+		}
+
+		executor = Executors.newFixedThreadPool(this.tiles,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "cellular-tile");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * @see GeneticAlgorithm#setComparator(Comparator)
+	 */
+	public void setComparator(Comparator<? super T> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 * @see GeneticAlgorithm#setReverseOrder(boolean)
+	 */
+	public void setReverseOrder(boolean reverseOrder) {
+		setComparator(reverseOrder ? Collections.reverseOrder() : null);
+	}
+
+	/**
+	 * Advances one generation.
+	 *
+	 * @param crossoverRate
+	 *            probability of crossover for each cell.
+	 * @param mutationRate
+	 *            see {@link Individual#mutate(Random, double)}.
+	 * @throws IllegalArgumentException
+	 *             if arguments are NaN, less than 0 or greater than 1.
+	 * @throws IllegalStateException
+	 *             if fitness of individual is still invalid after
+	 *             {@link GeneticAlgorithmPlan#calculateFitness(List)} called.
+	 * @throws RuntimeException
+	 *             if a tile fails.
+	 */
+	public void step(final double crossoverRate, final double mutationRate) {
+		GeneticAlgorithm.probabilityCheck("crossover rate", crossoverRate);
+		GeneticAlgorithm.probabilityCheck("mutation rate", mutationRate);
+
+		if (!evaluated) {
+			runTiles(new TileTask() {
+				@Override
+				public void run(int y0, int y1) {
+					List<T> cells = new ArrayList<>();
+					for (int i = y0 * width; i < y1 * width; i++)
+						cells.add(grid[i]);
+					plan.calculateFitness(cells);
+				}
+			});
+			evaluated = true;
+		}
+
+		Random random = plan.getRandom();
+		final long[] seeds = new long[height];
+		for (int y = 0; y < height; y++)
+			seeds[y] = random.nextLong();
+		runTiles(new TileTask() {
+			@Override
+			public void run(int y0, int y1) {
+				breed(y0, y1, seeds, crossoverRate, mutationRate);
+			}
+		});
+
+		T[] temp = grid;
+		grid = next;
+		next = temp;
+	}
+
+	/**
+	 *
+	 * @return copy of the best individual on the grid.
+	 * @throws IllegalStateException
+	 *             if no generation has been evaluated yet.
+	 */
+	public T getBest() {
+		if (!evaluated)
+			throw new IllegalStateException("not evaluated yet");
+		T best = grid[0];
+		for (T cell : grid) {
+			if (compare(cell, best) < 0)
+				best = cell;
+		}
+		return makeClone(best);
+	}
+
+	/**
+	 *
+	 * @param x
+	 *            column (0 to {@link #width} - 1).
+	 * @param y
+	 *            row (0 to {@link #height} - 1).
+	 * @return copy of the individual at the cell.
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public T getCell(int x, int y) {
+		return makeClone(grid[y * width + x]);
+	}
+
+	/**
+	 * Stops the tile threads. This object cannot be used afterwards.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private void breed(int y0, int y1, long[] seeds, double crossoverRate,
+			double mutationRate) {
+		List<T> offspring = new ArrayList<>();
+		for (int y = y0; y < y1; y++) {
+			Random random = new Random(seeds[y]);
+			for (int x = 0; x < width; x++) {
+				T self = grid[y * width + x];
+				T child = makeClone(self);
+				child.activateWatcher();
+				if (random.nextDouble() < crossoverRate) {
+					T other = makeClone(selectMate(x, y, random));
+					plan.applyCrossOver(child, other);
+				}
+				child.mutate(random, mutationRate);
+				offspring.add(child);
+			}
+		}
+
+		List<T> invalid = new ArrayList<>();
+		for (T child : offspring) {
+			if (!child.hasFitness())
+				invalid.add(child);
+		}
+		if (!invalid.isEmpty())
+			plan.calculateFitness(invalid);
+
+		for (int k = 0, i = y0 * width; k < offspring.size(); k++, i++) {
+			T self = grid[i];
+			T child = offspring.get(k);
+			// the parent is never modified, so it can survive as it is
+			next[i] = compare(child, self) <= 0 ? child : self;
+		}
+	}
+
+	private T selectMate(int x, int y, Random random) {
+		int[][] offsets = neighbourhood.offsets;
+		T a = neighbour(x, y, offsets[random.nextInt(offsets.length)]);
+		T b = neighbour(x, y, offsets[random.nextInt(offsets.length)]);
+		return compare(a, b) <= 0 ? a : b;
+	}
+
+	private T neighbour(int x, int y, int[] offset) {
+		int nx = (x + offset[0] + width) % width;
+		int ny = (y + offset[1] + height) % height;
+		return grid[ny * width + nx];
+	}
+
+	private int compare(T a, T b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	private interface TileTask {
+		void run(int y0, int y1);
+	}
+
+	private void runTiles(final TileTask task) {
+		List<Future<Void>> futures = new ArrayList<>();
+		for (int t = 0; t < tiles; t++) {
+			final int y0 = height * t / tiles;
+			final int y1 = height * (t + 1) / tiles;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					task.run(y0, y1);
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<Void> f : futures)
+				f.get();
+		} catch (InterruptedException e) {
+			for (Future<Void> f : futures)
+				f.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("tile failed", cause);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T[] makePopulationArray(int size) {
+		return (T[]) new Individual[size];
+	}
+}
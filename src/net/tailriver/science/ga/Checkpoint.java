@@ -0,0 +1,305 @@
+package net.tailriver.science.ga;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Checkpoint of a running {@link GeneticAlgorithm} in a file.
+ *
+ * <p>
+ * {@link #save(GeneticAlgorithm, long)} copies chromosome words and fitness of
+ * the population on the calling thread, and writes them on a background
+ * thread through a memory-mapped temporary file, which then replaces the
+ * checkpoint atomically. The comparator and the state of
+ * {@link GeneticAlgorithmPlan#getRandom()} are saved as well.
+ * </p>
+ *
+ * <p>
+ * {@link Random} does not expose its state, so {@code save} reseeds it with
+ * its own next value and saves that seed. A run restored by
+ * {@link #restore(GeneticAlgorithm)} then continues bit-identically to the
+ * saved run, as long as the plan is deterministic except for its random
+ * generator. Save at a generation boundary, i.e. after
+ * {@link GeneticAlgorithm#select()}.
+ * </p>
+ *
+ * <pre>
+ * int magic, int version, long generation, long seed,
+ * int size, int length, int[length] bit size of each index of geno-type,
+ * int comparator bytes (-1 for natural ordering), byte[] serialized comparator,
+ * size * (double fitness, long[words] chromosome words)
+ * </pre>
+ *
+ * @author tailriver
+ *
+ */
+public class Checkpoint implements Closeable {
+	/** magic number of a checkpoint file: "GACP". */
+	public static final int MAGIC = 0x47414350;
+
+	/** version of the format. */
+	public static final int VERSION = 1;
+
+	private final Path file;
+	private final Path temporary;
+	private final ExecutorService writer;
+	private Future<?> pending;
+
+	/**
+	 *
+	 * @param file
+	 *            checkpoint file.
+	 * @throws NullPointerException
+	 *             if {@code file} is <code>null</code>.
+	 */
+	public Checkpoint(Path file) {
+		this.file = file;
+		temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "checkpoint-writer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @return <code>true</code> if the checkpoint file exists.
+	 */
+	public boolean exists() {
+		return Files.exists(file);
+	}
+
+	/**
+	 * Takes a snapshot and writes it in the background. If the previous
+	 * snapshot is still being written, it waits for that first.
+	 *
+	 * @param ga
+	 *            genetic algorithm to save.
+	 * @param generation
+	 *            generation number saved with the snapshot.
+	 * @return future of the write, whose {@code get()} throws an
+	 *         {@link ExecutionException} caused by an {@link IOException} if
+	 *         the write fails.
+	 * @throws IllegalArgumentException
+	 *             if the comparator is not serializable.
+	 * @throws IllegalStateException
+	 *             if fitness of an individual is invalid, or the previous
+	 *             write failed.
+	 */
+	public synchronized Future<?> save(GeneticAlgorithm<?> ga,
+			final long generation) {
+		await();
+
+		final Individual[] population = ga.population;
+		final int size = population.length;
+		final GenoType schema = population[0].genoType;
+		final int words = schema.getWordCount();
+		final byte[] comparator = serialize(ga.getComparator());
+		final long[] chromosomes = new long[size * words];
+		final double[] fitness = new double[size];
+		for (int i = 0; i < size; i++) {
+			if (!population[i].hasFitness())
+				throw new IllegalStateException("invalid fitness: "
+						+ population[i]);
+			fitness[i] = population[i].getFitness();
+			population[i].genoType.copyWords(chromosomes, i * words);
+		}
+		Random random = ga.plan.getRandom();
+		final long seed = random.nextLong();
+		random.setSeed(seed);
+
+		final long header = 36 + 4 * schema.length
+				+ (comparator == null ? 0 : comparator.length);
+		pending = writer.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				try (FileChannel channel = FileChannel.open(temporary,
+						StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+					MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE,
+							0, header + 8L * size * (1 + words));
+					buffer.putInt(MAGIC).putInt(VERSION).putLong(generation)
+							.putLong(seed).putInt(size).putInt(schema.length);
+					for (int i = 0; i < schema.length; i++)
+						buffer.putInt(schema.getLength(i));
+					if (comparator == null) {
+						buffer.putInt(-1);
+					} else {
+						buffer.putInt(comparator.length);
+						buffer.put(comparator);
+					}
+					for (int i = 0; i < size; i++) {
+						buffer.putDouble(fitness[i]);
+						for (int w = 0; w < words; w++)
+							buffer.putLong(chromosomes[i * words + w]);
+					}
+					buffer.force();
+				}
+				Files.move(temporary, file,
+						StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				return null;
+			}
+		});
+		return pending;
+	}
+
+	/**
+	 * Restores the genetic algorithm from the checkpoint: chromosomes, fitness
+	 * and order of the population, the comparator and the state of the random
+	 * generator of the plan. It waits for a pending write first.
+	 *
+	 * @param ga
+	 *            genetic algorithm of the same plan and size as saved.
+	 * @return saved generation number.
+	 * @throws IOException
+	 *             if an I/O error occurs, or the file is invalid or does not
+	 *             match {@code ga}.
+	 * @throws IllegalStateException
+	 *             if the previous write failed.
+	 */
+	public synchronized long restore(GeneticAlgorithm<?> ga) throws IOException {
+		await();
+
+		Individual[] population = ga.population;
+		GenoType schema = population[0].genoType;
+		int words = schema.getWordCount();
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("invalid magic");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("unsupported version: " + version);
+			long generation = buffer.getLong();
+			long seed = buffer.getLong();
+			int size = buffer.getInt();
+			boolean match = size == population.length
+					&& buffer.getInt() == schema.length;
+			for (int i = 0; match && i < schema.length; i++)
+				match = buffer.getInt() == schema.getLength(i);
+			if (!match)
+				throw new IOException("checkpoint differs from the population");
+
+			int n = buffer.getInt();
+			byte[] comparator = null;
+			if (n >= 0) {
+				comparator = new byte[n];
+				buffer.get(comparator);
+			}
+			Comparator<?> c = deserialize(comparator);
+
+			// nothing is restored from a truncated file
+			if (buffer.remaining() < population.length * (8 + 8L * words))
+				throw new IOException("truncated checkpoint");
+			long[] chromosome = new long[words];
+			for (Individual i : population) {
+				double fitness = buffer.getDouble();
+				buffer.asLongBuffer().get(chromosome);
+				buffer.position(buffer.position() + 8 * words);
+				i.genoType.setLongArray(chromosome);
+				i.onGenoTypeChanged();
+				i.setFitness(fitness);
+			}
+			setComparator(ga, c);
+			ga.populationChanged();
+			ga.plan.getRandom().setSeed(seed);
+			return generation;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("truncated checkpoint", e);
+		}
+	}
+
+	/**
+	 * Waits for a pending write and stops the background thread.
+	 *
+	 * @throws IOException
+	 *             if the pending write failed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			await();
+		} catch (IllegalStateException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw e;
+		} finally {
+			writer.shutdown();
+		}
+	}
+
+	private void await() {
+		if (pending == null)
+			return;
+		try {
+			pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("checkpoint failed", e.getCause());
+		} finally {
+			pending = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> void setComparator(
+			GeneticAlgorithm<T> ga, Comparator<?> c) {
+		ga.setComparator((Comparator<? super T>) c);
+	}
+
+	private static byte[] serialize(Comparator<?> comparator) {
+		if (comparator == null)
+			return null;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(comparator);
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalArgumentException(
+					"comparator is not serializable", e);
+		}
+	}
+
+	private static Comparator<?> deserialize(byte[] bytes) throws IOException {
+		if (bytes == null)
+			return null;
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(bytes))) {
+			return (Comparator<?>) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("invalid comparator", e);
+		}
+	}
+}
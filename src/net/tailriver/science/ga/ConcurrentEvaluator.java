@@ -0,0 +1,393 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Evaluates individuals concurrently, each on its own task. It is intended for
+ * fitness functions that mostly wait, such as calls to local services or
+ * external processes, and is typically used inside
+ * {@link GeneticAlgorithmPlan#calculateFitness(List)}.
+ *
+ * <ul>
+ * <li>At most {@code concurrency} evaluations run at once.</li>
+ * <li>An evaluation running longer than the timeout is cancelled by
+ * interruption, and either gets a penalty fitness or fails the whole call (see
+ * {@link TimeoutPolicy}).</li>
+ * <li>When an evaluation fails, evaluations not finished yet are cancelled
+ * without waiting for them.</li>
+ * <li>{@link #evaluate(List, FitnessFunction)} returns only after every
+ * evaluation it started has completed or been cancelled.</li>
+ * </ul>
+ *
+ * <p>
+ * With a {@link CostModel}, evaluations are started longest predicted first,
+ * each as soon as a previous one finishes. Idle slots thus take the next
+ * longest remaining work, so a few expensive individuals do not finish last
+ * on one thread as with fixed chunks.
+ * </p>
+ *
+ * <p>
+ * Tasks run on the given {@link ExecutorService}. On a JDK with virtual
+ * threads, pass {@code Executors.newVirtualThreadPerTaskExecutor()} to keep
+ * thousands of evaluations in flight without as many platform threads.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class ConcurrentEvaluator<T extends Individual> {
+	/** What happens when an evaluation times out. */
+	public enum TimeoutPolicy {
+		/** the individual gets the penalty fitness. */
+		PENALTY,
+		/** the whole evaluation fails. */
+		FAIL
+	}
+
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	private final int concurrency;
+	private final Semaphore permits;
+	private final ScheduledThreadPoolExecutor watchdog;
+
+	private long timeoutNanos;
+	private TimeoutPolicy policy = TimeoutPolicy.FAIL;
+	private double penalty = Double.NaN;
+	private CostModel costModel;
+	private long predictedMakespan;
+	private long makespan;
+
+	/**
+	 * Creates an evaluator running on its own pool of daemon threads.
+	 *
+	 * @param concurrency
+	 *            maximum number of evaluations running at once.
+	 * @throws IllegalArgumentException
+	 *             if {@code concurrency} is less than 1.
+	 */
+	public ConcurrentEvaluator(int concurrency) {
+		this(Executors.newCachedThreadPool(daemonThreadFactory("evaluator")),
+				concurrency, true);
+	}
+
+	/**
+	 *
+	 * @param executor
+	 *            executor to run evaluations. It is not shut down by
+	 *            {@link #shutdown()}.
+	 * @param concurrency
+	 *            maximum number of evaluations running at once.
+	 * @throws NullPointerException
+	 *             if {@code executor} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code concurrency} is less than 1.
+	 */
+	public ConcurrentEvaluator(ExecutorService executor, int concurrency) {
+		this(executor, concurrency, false);
+	}
+
+	private ConcurrentEvaluator(ExecutorService executor, int concurrency,
+			boolean ownExecutor) {
+		if (executor == null)
+			throw new NullPointerException();
+		if (concurrency < 1)
+			throw new IllegalArgumentException("concurrency < 1: "
+					+ concurrency);
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+		this.concurrency = concurrency;
+		permits = new Semaphore(concurrency);
+		watchdog = new ScheduledThreadPoolExecutor(1,
+				daemonThreadFactory("evaluator-watchdog"));
+		watchdog.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Sets a timeout of each evaluation.
+	 *
+	 * @param timeout
+	 *            maximum time of an evaluation; 0 means no timeout.
+	 * @param unit
+	 *            unit of {@code timeout}.
+	 * @param policy
+	 *            what happens when an evaluation times out.
+	 * @param penalty
+	 *            fitness given to timed out individuals with
+	 *            {@link TimeoutPolicy#PENALTY}.
+	 * @throws NullPointerException
+	 *             if {@code unit} or {@code policy} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code timeout} is negative, or {@code penalty} is NaN
+	 *             with {@link TimeoutPolicy#PENALTY}.
+	 */
+	public void setTimeout(long timeout, TimeUnit unit, TimeoutPolicy policy,
+			double penalty) {
+		if (unit == null || policy == null)
+			throw new NullPointerException();
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout < 0: " + timeout);
+		if (policy == TimeoutPolicy.PENALTY && Double.isNaN(penalty))
+			throw new IllegalArgumentException("penalty is NaN");
+		timeoutNanos = unit.toNanos(timeout);
+		this.policy = policy;
+		this.penalty = penalty;
+	}
+
+	/**
+	 * Sets a cost model, which learns from evaluation times measured by this
+	 * object and orders evaluations longest predicted first.
+	 *
+	 * @param costModel
+	 *            cost model, or <code>null</code> to evaluate in the given
+	 *            order.
+	 */
+	public void setCostModel(CostModel costModel) {
+		this.costModel = costModel;
+	}
+
+	/**
+	 *
+	 * @return wall-clock time of the last {@link #evaluate(List, FitnessFunction)}
+	 *         predicted by the cost model in nanoseconds, assuming evaluations
+	 *         take predicted times; 0 without a cost model.
+	 */
+	public long getPredictedMakespan() {
+		return predictedMakespan;
+	}
+
+	/**
+	 *
+	 * @return actual wall-clock time of the last
+	 *         {@link #evaluate(List, FitnessFunction)} in nanoseconds.
+	 */
+	public long getMakespan() {
+		return makespan;
+	}
+
+	/**
+	 * Evaluates individuals and sets their fitness.
+	 *
+	 * @param population
+	 *            individuals to evaluate.
+	 * @param function
+	 *            fitness function.
+	 * @throws IllegalStateException
+	 *             if an evaluation fails or times out with
+	 *             {@link TimeoutPolicy#FAIL} (the cause is the exception of the
+	 *             evaluation or a {@link TimeoutException}), or if the calling
+	 *             thread is interrupted (its interrupt status is kept).
+	 * @throws IllegalArgumentException
+	 *             if the function returns NaN.
+	 */
+	public void evaluate(List<? extends T> population,
+			FitnessFunction<? super T> function) {
+		long start = System.nanoTime();
+		CostModel model = costModel;
+		List<? extends T> order = model == null ? population : schedule(
+				population, model);
+
+		AtomicBoolean failed = new AtomicBoolean();
+		BlockingQueue<Evaluation> completed = new LinkedBlockingQueue<>();
+		List<Evaluation> evaluations = new ArrayList<>();
+		try {
+			for (T individual : order) {
+				// stop submitting as soon as the result is known to fail
+				if (failed.get())
+					break;
+				permits.acquire();
+				Evaluation e = new Evaluation(individual, function, model,
+						failed, completed);
+				evaluations.add(e);
+				executor.execute(e);
+			}
+			// in order of completion, so that a failure is not hidden behind
+			// a slow evaluation
+			for (int k = 0; k < evaluations.size(); k++) {
+				Evaluation e = completed.take();
+				try {
+					e.individual.setFitness(e.get());
+				} catch (CancellationException ce) {
+					if (!e.timedOut)
+						throw ce;
+					if (policy == TimeoutPolicy.FAIL)
+						throw new IllegalStateException("evaluation timed out",
+								new TimeoutException(e.individual.toString()));
+					e.individual.setFitness(penalty);
+				}
+			}
+		} catch (InterruptedException e) {
+			cancel(evaluations);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} catch (ExecutionException e) {
+			cancel(evaluations);
+			throw new IllegalStateException("evaluation failed", e.getCause());
+		} catch (RuntimeException e) {
+			cancel(evaluations);
+			throw e;
+		} finally {
+			makespan = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Stops the watchdog thread, and the executor if it was created by this
+	 * object.
+	 */
+	public void shutdown() {
+		watchdog.shutdownNow();
+		if (ownExecutor)
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Sorts individuals longest predicted first, and predicts the makespan of
+	 * running them in that order.
+	 */
+	private List<T> schedule(List<? extends T> population, CostModel model) {
+		final List<T> order = new ArrayList<>(population);
+		final double[] cost = new double[order.size()];
+		List<Integer> index = new ArrayList<>();
+		for (int i = 0; i < cost.length; i++) {
+			cost[i] = model.predict(order.get(i));
+			index.add(i);
+		}
+		Collections.sort(index, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(cost[b], cost[a]);
+			}
+		});
+
+		PriorityQueue<Double> slots = new PriorityQueue<>();
+		for (int k = 0; k < concurrency; k++)
+			slots.add(0.0);
+		double end = 0;
+		for (int k = 0; k < cost.length; k++) {
+			int i = index.get(k);
+			double finish = slots.poll() + cost[i];
+			slots.add(finish);
+			end = Math.max(end, finish);
+			order.set(k, population.get(i));
+		}
+		predictedMakespan = (long) end;
+		return order;
+	}
+
+	private void cancel(List<Evaluation> evaluations) {
+		for (Evaluation e : evaluations)
+			e.cancel(true);
+	}
+
+	/** An evaluation of an individual, which enforces its own timeout. */
+	private final class Evaluation extends FutureTask<Double> {
+		final T individual;
+		final CostModel model;
+		final AtomicBoolean failed;
+		final BlockingQueue<Evaluation> completed;
+		volatile boolean timedOut;
+
+		Evaluation(final T individual,
+				final FitnessFunction<? super T> function,
+				final CostModel model, AtomicBoolean failed,
+				BlockingQueue<Evaluation> completed) {
+			super(new Callable<Double>() {
+				@Override
+				public Double call() throws Exception {
+					return function.calculateFitness(individual);
+				}
+			});
+			this.individual = individual;
+			this.model = model;
+			this.failed = failed;
+			this.completed = completed;
+		}
+
+		@Override
+		public void run() {
+			ScheduledFuture<?> alarm = null;
+			if (timeoutNanos > 0) {
+				alarm = watchdog.schedule(new Runnable() {
+					@Override
+					public void run() {
+						timedOut = true;
+						cancel(true);
+					}
+				}, timeoutNanos, TimeUnit.NANOSECONDS);
+			}
+			long start = System.nanoTime();
+			try {
+				super.run();
+			} finally {
+				if (alarm != null)
+					alarm.cancel(false);
+				if (model != null)
+					record(System.nanoTime() - start);
+			}
+		}
+
+		/** Records the time once, only if it tells the cost. */
+		private void record(long nanos) {
+			if (timedOut)
+				// the actual time is unknown, but at least the timeout
+				model.record(individual, timeoutNanos);
+			else if (!isCancelled() && !isFailed())
+				model.record(individual, nanos);
+		}
+
+		/**
+		 * Releases the permit as soon as the result is settled, including
+		 * cancellation. A cancelled task which ignores interruption may still
+		 * run for a while, but no longer counts against the limit.
+		 */
+		@Override
+		protected void done() {
+			permits.release();
+			if (isCancelled() ? timedOut && policy == TimeoutPolicy.FAIL
+					: isFailed())
+				failed.set(true);
+			completed.add(this);
+		}
+
+		private boolean isFailed() {
+			try {
+				get();
+				return false;
+			} catch (ExecutionException | InterruptedException e) {
+				return true;
+			}
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+}
@@ -0,0 +1,121 @@
+package net.tailriver.science.ga;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Learns evaluation time of individuals from measurements, to schedule
+ * expensive evaluations first.
+ *
+ * <p>
+ * A geno-type measured before is predicted by its last measurement, looked up
+ * by {@link GenoType#longHashCode()}. Others are predicted by a least squares
+ * line fitted to the number of 1 bits, which often drives cost (e.g. number
+ * of selected features). Methods are thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @see ConcurrentEvaluator#setCostModel(CostModel)
+ */
+public class CostModel {
+	private final Map<Long, Long> measured;
+
+	// sums for the regression of time on 1 bits
+	private long samples;
+	private double sumX, sumY, sumXX, sumXY;
+
+	// errors of predictions made before measurements
+	private double sumError, sumActual;
+
+	/**
+	 *
+	 * @param capacity
+	 *            maximum number of geno-types whose measurement is kept.
+	 * @throws IllegalArgumentException
+	 *             if {@code capacity} is negative.
+	 */
+	public CostModel(final int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity < 0: " + capacity);
+		measured = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param individual
+	 *            individual to evaluate.
+	 * @return predicted evaluation time in nanoseconds; 0 before any
+	 *         measurement.
+	 */
+	public synchronized double predict(Individual individual) {
+		Long t = measured.get(individual.genoType.longHashCode());
+		if (t != null)
+			return t;
+		return predict(individual.genoType.cardinality());
+	}
+
+	/**
+	 * Records a measured evaluation time.
+	 *
+	 * @param individual
+	 *            evaluated individual.
+	 * @param nanos
+	 *            evaluation time in nanoseconds.
+	 */
+	public synchronized void record(Individual individual, long nanos) {
+		sumError += Math.abs(predict(individual) - nanos);
+		sumActual += nanos;
+
+		double x = individual.genoType.cardinality();
+		samples++;
+		sumX += x;
+		sumY += nanos;
+		sumXX += x * x;
+		sumXY += x * nanos;
+		measured.put(individual.genoType.longHashCode(), nanos);
+	}
+
+	/**
+	 *
+	 * @return number of recorded measurements.
+	 */
+	public synchronized long getSampleCount() {
+		return samples;
+	}
+
+	/**
+	 *
+	 * @return sum of absolute differences between predicted and measured
+	 *         times, divided by the sum of measured times; NaN if nothing is
+	 *         measured.
+	 */
+	public synchronized double getRelativeError() {
+		return sumError / sumActual;
+	}
+
+	private double predict(double x) {
+		if (samples == 0)
+			return 0;
+		double meanX = sumX / samples;
+		double meanY = sumY / samples;
+		double varX = sumXX / samples - meanX * meanX;
+		if (varX <= 0)
+			return meanY;
+		double slope = (sumXY / samples - meanX * meanY) / varX;
+		return Math.max(0, meanY + slope * (x - meanX));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("samples=%d, relative error=%.3f", samples,
+				getRelativeError());
+	}
+}
@@ -0,0 +1,137 @@
+package net.tailriver.science.ga;
+
+import java.util.List;
+
+/**
+ * Diversity and convergence metrics of a population.
+ *
+ * <p>
+ * It counts the number of individuals having 1 at each chromosome bit (allele
+ * frequency). All metrics are derived from these counts, so an update visits
+ * each set bit of each chromosome once, O(population &times; bit length) in
+ * the worst case, without comparing pairs of individuals. Nothing is
+ * allocated per individual.
+ * </p>
+ *
+ * @author tailriver
+ * @see GeneticAlgorithm#getDiversity()
+ */
+public final class Diversity {
+	private int[] counts = new int[0];
+	private int size;
+
+	/**
+	 * Recounts allele frequencies.
+	 *
+	 * @param population
+	 *            individuals to measure. All of them must have the same bit
+	 *            length.
+	 * @throws NullPointerException
+	 *             if {@code population} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if bit lengths of individuals differ.
+	 */
+	public void update(List<? extends Individual> population) {
+		size = population.size();
+		int bitLength = size == 0 ? 0 : population.get(0).genoType
+				.getBitLength();
+		if (counts.length != bitLength)
+			counts = new int[bitLength];
+		else
+			for (int b = 0; b < bitLength; b++)
+				counts[b] = 0;
+
+		for (int i = 0; i < size; i++) {
+			GenoType g = population.get(i).genoType;
+			if (g.getBitLength() != bitLength)
+				throw new IllegalArgumentException("bit length must be "
+						+ bitLength + ": " + g.getBitLength());
+			g.addBitCounts(counts);
+		}
+	}
+
+	/**
+	 *
+	 * @return number of measured individuals.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return bit length of measured chromosomes.
+	 */
+	public int getBitLength() {
+		return counts.length;
+	}
+
+	/**
+	 *
+	 * @param bitIndex
+	 *            index of chromosome bit.
+	 * @return ratio of individuals having 1 at the bit; NaN if no individual
+	 *         was measured.
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public double getAlleleFrequency(int bitIndex) {
+		return (double) counts[bitIndex] / size;
+	}
+
+	/**
+	 * Mean Hamming distance over all pairs of individuals. For each bit, the
+	 * number of differing pairs is {@code count * (size - count)}.
+	 *
+	 * @return mean pairwise Hamming distance; 0 if less than two individuals
+	 *         were measured.
+	 */
+	public double getMeanHammingDistance() {
+		if (size < 2)
+			return 0;
+		long differ = 0;
+		for (int c : counts)
+			differ += (long) c * (size - c);
+		return differ / (size * (size - 1d) / 2);
+	}
+
+	/**
+	 * Mean Shannon entropy of chromosome bits. It is 1 when every bit is 0 in
+	 * one half of the population and 1 in the other half, and 0 when the
+	 * population has converged.
+	 *
+	 * @return genotype entropy in bits per chromosome bit (0 to 1).
+	 */
+	public double getEntropy() {
+		if (size == 0 || counts.length == 0)
+			return 0;
+		double sum = 0;
+		for (int c : counts) {
+			if (c == 0 || c == size)
+				continue;
+			double p = (double) c / size;
+			sum -= p * Math.log(p) + (1 - p) * Math.log(1 - p);
+		}
+		return sum / Math.log(2) / counts.length;
+	}
+
+	/**
+	 *
+	 * @return number of chromosome bits where all individuals have the same
+	 *         value.
+	 */
+	public int getConvergedBitCount() {
+		int converged = 0;
+		for (int c : counts) {
+			if (c == 0 || c == size)
+				converged++;
+		}
+		return converged;
+	}
+
+	@Override
+	public String toString() {
+		return "hamming=" + getMeanHammingDistance() + ", entropy="
+				+ getEntropy() + ", converged=" + getConvergedBitCount() + '/'
+				+ counts.length;
+	}
+}
@@ -0,0 +1,33 @@
+package net.tailriver.science.ga;
+
+/**
+ * Cache of fitness values by geno-type, consulted before
+ * {@link GeneticAlgorithmPlan#calculateFitness(java.util.List)}.
+ *
+ * <p>
+ * Only fitness is cached. Individuals found in a cache have no pheno-types
+ * set by {@code calculateFitness}. Implementations must be thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @see GeneticAlgorithm#setFitnessCache(FitnessCache)
+ */
+public interface FitnessCache {
+	/**
+	 * Looks up fitness of an individual, and sets it if found.
+	 *
+	 * @param individual
+	 *            individual to look up.
+	 * @return <code>true</code> if found.
+	 */
+	boolean lookup(Individual individual);
+
+	/**
+	 * Stores fitness of an individual.
+	 *
+	 * @param individual
+	 *            individual with valid fitness.
+	 */
+	void store(Individual individual);
+}
@@ -0,0 +1,32 @@
+package net.tailriver.science.ga;
+
+/**
+ * Fitness function of a single individual, used by evaluators which call it
+ * from several threads.
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ * @see ConcurrentEvaluator
+ */
+public interface FitnessFunction<T extends Individual> {
+	/**
+	 * Calculates fitness of an individual. It may also set pheno-type by
+	 * {@link Individual#setPhenoType(int, Object)}, but must not call
+	 * {@link Individual#setFitness(double)}; the caller does.
+	 *
+	 * <p>
+	 * It is called concurrently for different individuals. Long running
+	 * implementations should respond to interruption, which is used to cancel
+	 * them.
+	 * </p>
+	 *
+	 * @param individual
+	 *            individual to evaluate.
+	 * @return fitness value. It must not be NaN.
+	 * @throws Exception
+	 *             if the evaluation fails.
+	 */
+	double calculateFitness(T individual) throws Exception;
+}
@@ -0,0 +1,301 @@
+package net.tailriver.science.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent {@link FitnessCache}: an open-addressing hash table in a
+ * memory-mapped file, which is shared by runs of the same plan.
+ *
+ * <p>
+ * An entry is keyed by chromosome words and a fingerprint of the schema of
+ * geno-types and of the plan, so several plans can share a file. Callers give
+ * a plan fingerprint which changes whenever fitness of the same geno-type
+ * would change (e.g. a hash of plan parameters).
+ * </p>
+ *
+ * <p>
+ * The table is split into segments with their own read-write lock, and
+ * linear probing stays within a segment. An entry is written with a checksum
+ * and its tag is written last, so entries torn by a crash are ignored. Data
+ * reaches the file when the process exits, even by a crash; call
+ * {@link #force()} to survive a system failure. When a segment is full, new
+ * entries are not stored.
+ * </p>
+ *
+ * <pre>
+ * header:  int magic, int version, int segments, int slots per segment,
+ *          int words, padded to 64 bytes
+ * slot:    long tag (0 if empty), long fingerprint, long fitness bits,
+ *          long[words] chromosome words, long checksum
+ * </pre>
+ *
+ * @author tailriver
+ *
+ */
+public class FitnessStore implements FitnessCache, Closeable {
+	/** magic number of a store file: "GAFS". */
+	public static final int MAGIC = 0x47414653;
+
+	/** version of the format. */
+	public static final int VERSION = 1;
+
+	private static final int HEADER = 64;
+	private static final int SEGMENTS = 64;
+
+	private final FileChannel channel;
+	private final long fingerprint;
+	private final int words;
+	private final int slotSize;
+	private final int slots;
+	private final MappedByteBuffer[] segments;
+	private final ReadWriteLock[] locks;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong overflows = new AtomicLong();
+
+	/**
+	 * Opens a store, creating it if it does not exist. An existing store keeps
+	 * its capacity.
+	 *
+	 * @param file
+	 *            store file.
+	 * @param template
+	 *            individual whose geno-type gives the schema.
+	 * @param planFingerprint
+	 *            fingerprint of the plan.
+	 * @param capacity
+	 *            number of entries of a new store.
+	 * @throws IllegalArgumentException
+	 *             if {@code capacity} is less than 1, or a segment would
+	 *             exceed 2 GiB.
+	 * @throws IOException
+	 *             if an I/O error occurs, or an existing store is invalid or
+	 *             has chromosomes of another length.
+	 */
+	public FitnessStore(Path file, Individual template, long planFingerprint,
+			int capacity) throws IOException {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity < 1: " + capacity);
+		GenoType schema = template.genoType;
+		long f = mix(planFingerprint);
+		for (int i = 0; i < schema.length; i++)
+			f = mix(f ^ schema.getLength(i));
+		fingerprint = f;
+		words = schema.getWordCount();
+		slotSize = 32 + 8 * words;
+
+		channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			if (channel.size() == 0) {
+				int perSegment = (capacity + SEGMENTS - 1) / SEGMENTS;
+				if ((long) perSegment * slotSize > Integer.MAX_VALUE)
+					throw new IllegalArgumentException("too large capacity: "
+							+ capacity);
+				header.putInt(MAGIC).putInt(VERSION).putInt(SEGMENTS)
+						.putInt(perSegment).putInt(words);
+				header.clear();
+				while (header.hasRemaining())
+					channel.write(header, header.position());
+				header.clear();
+			}
+			while (header.hasRemaining()
+					&& channel.read(header, header.position()) >= 0)
+				continue;
+			header.flip();
+			if (header.remaining() < HEADER || header.getInt() != MAGIC)
+				throw new IOException("invalid magic");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("unsupported version: " + version);
+			int segmentCount = header.getInt();
+			slots = header.getInt();
+			if (header.getInt() != words)
+				throw new IOException("chromosome length differs");
+
+			segments = new MappedByteBuffer[segmentCount];
+			locks = new ReadWriteLock[segmentCount];
+			for (int s = 0; s < segmentCount; s++) {
+				segments[s] = channel.map(MapMode.READ_WRITE, HEADER
+						+ (long) s * slots * slotSize, (long) slots
+						* slotSize);
+				locks[s] = new ReentrantReadWriteLock();
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean lookup(Individual individual) {
+		long[] key = key(individual);
+		long tag = tag(individual);
+		int s = segment(tag);
+		MappedByteBuffer segment = segments[s];
+		locks[s].readLock().lock();
+		try {
+			for (int k = 0, i = home(tag); k < slots; k++, i = next(i)) {
+				int offset = i * slotSize;
+				long t = segment.getLong(offset);
+				if (t == 0)
+					break;
+				if (t == tag && matches(segment, offset, key)) {
+					long bits = segment.getLong(offset + 16);
+					if (segment.getLong(offset + slotSize - 8) != checksum(
+							tag, bits, key))
+						continue;
+					individual.setFitness(Double.longBitsToDouble(bits));
+					hits.incrementAndGet();
+					return true;
+				}
+			}
+		} finally {
+			locks[s].readLock().unlock();
+		}
+		misses.incrementAndGet();
+		return false;
+	}
+
+	@Override
+	public void store(Individual individual) {
+		long[] key = key(individual);
+		long tag = tag(individual);
+		long bits = Double.doubleToRawLongBits(individual.getFitness());
+		int s = segment(tag);
+		MappedByteBuffer segment = segments[s];
+		locks[s].writeLock().lock();
+		try {
+			for (int k = 0, i = home(tag); k < slots; k++, i = next(i)) {
+				int offset = i * slotSize;
+				long t = segment.getLong(offset);
+				if (t == tag && matches(segment, offset, key)) {
+					segment.putLong(offset + 16, bits);
+					segment.putLong(offset + slotSize - 8,
+							checksum(tag, bits, key));
+					return;
+				}
+				if (t == 0) {
+					segment.putLong(offset + 8, fingerprint);
+					segment.putLong(offset + 16, bits);
+					for (int w = 0; w < words; w++)
+						segment.putLong(offset + 24 + 8 * w, key[w]);
+					segment.putLong(offset + slotSize - 8,
+							checksum(tag, bits, key));
+					segment.putLong(offset, tag);
+					return;
+				}
+			}
+		} finally {
+			locks[s].writeLock().unlock();
+		}
+		overflows.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @return number of entries found by {@link #lookup(Individual)}.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries not found by {@link #lookup(Individual)}.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries not stored because a segment was full.
+	 */
+	public long getOverflows() {
+		return overflows.get();
+	}
+
+	/**
+	 * Writes all changes to the storage device.
+	 */
+	public void force() {
+		for (int s = 0; s < segments.length; s++) {
+			locks[s].readLock().lock();
+			try {
+				segments[s].force();
+			} finally {
+				locks[s].readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Forces changes and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	private long[] key(Individual individual) {
+		long[] a = new long[words];
+		individual.genoType.copyWords(a, 0);
+		return a;
+	}
+
+	/** @return nonzero hash of the key. */
+	private long tag(Individual individual) {
+		long h = mix(individual.genoType.longHashCode() ^ fingerprint);
+		return h != 0 ? h : 1;
+	}
+
+	private int segment(long tag) {
+		return (int) ((tag >>> 32 & 0x7FFFFFFFL) % segments.length);
+	}
+
+	private int home(long tag) {
+		return (int) ((tag & 0x7FFFFFFFL) % slots);
+	}
+
+	private int next(int i) {
+		return i + 1 < slots ? i + 1 : 0;
+	}
+
+	private boolean matches(ByteBuffer segment, int offset, long[] key) {
+		if (segment.getLong(offset + 8) != fingerprint)
+			return false;
+		for (int w = 0; w < words; w++) {
+			if (segment.getLong(offset + 24 + 8 * w) != key[w])
+				return false;
+		}
+		return true;
+	}
+
+	private long checksum(long tag, long bits, long[] key) {
+		long c = mix(tag ^ fingerprint);
+		c = mix(c ^ bits);
+		for (long w : key)
+			c = mix(c ^ w);
+		return c;
+	}
+
+	/** SplitMix64 finalizer. */
+	private static long mix(long z) {
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+}
@@ -0,0 +1,362 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.tailriver.science.ga.Instrumentation.Counter;
+import net.tailriver.science.ga.Instrumentation.Phase;
+import net.tailriver.science.ga.Instrumentation.Timer;
+
+/**
+ * Runs a generation of {@link GeneticAlgorithm} as a streaming pipeline.
+ *
+ * <p>
+ * {@link #run(double, double, double)} replaces {@code cross()},
+ * {@code mutate()} and the evaluation in {@code sort()}. Offspring flow in
+ * batches through bounded queues between stages:
+ * </p>
+ *
+ * <ol>
+ * <li>pair: the calling thread chooses parents and survivors, and feeds
+ * batches of them whenever the next queue has room;</li>
+ * <li>recombine and mutate: breeder threads clone parents, apply
+ * {@link GeneticAlgorithmPlan#applyCrossOver(Individual, Individual)} and
+ * {@link Individual#mutate(Random, double)};</li>
+ * <li>evaluate: evaluator threads call
+ * {@link GeneticAlgorithmPlan#calculateFitness(List)} with individuals whose
+ * fitness is invalid;</li>
+ * <li>rank: the calling thread sorts each batch as it arrives, between
+ * feeding, and merges them at the end.</li>
+ * </ol>
+ *
+ * <p>
+ * Early batches are thus evaluated and ranked while later ones are still
+ * bred. Breeding is recorded as the CROSS and MUTATE phases of the
+ * {@link Instrumentation} of the genetic algorithm, per batch. The
+ * generation is the same as {@code cross()} and {@code mutate()} do, except
+ * that both parents are chosen at random and every individual is a copy.
+ * Mutation uses a random generator per batch seeded from
+ * {@link GeneticAlgorithmPlan#getRandom()}; crossover and fitness calculation
+ * of the plan are called concurrently and must be thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class GenerationPipeline<T extends Individual> {
+	private final GeneticAlgorithm<T> ga;
+	private final int breeders;
+	private final int evaluators;
+	private final int batchSize;
+	private final int capacity;
+	private final ExecutorService executor;
+
+	/** Work of a pipeline; parents are replaced by offspring in place. */
+	private final class Batch {
+		final long seed;
+		final List<T> individuals = new ArrayList<>();
+		/** whether {@code individuals} are parents paired in order. */
+		final boolean pairs;
+		Throwable error;
+
+		Batch(long seed, boolean pairs) {
+			this.seed = seed;
+			this.pairs = pairs;
+		}
+	}
+
+	/**
+	 *
+	 * @param ga
+	 *            genetic algorithm to run.
+	 * @param breeders
+	 *            number of threads for crossover and mutation.
+	 * @param evaluators
+	 *            number of threads for fitness calculation.
+	 * @param batchSize
+	 *            number of individuals in a batch.
+	 * @param capacity
+	 *            number of batches each queue between stages can hold.
+	 * @throws NullPointerException
+	 *             if {@code ga} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if any of numbers is less than 1.
+	 */
+	public GenerationPipeline(GeneticAlgorithm<T> ga, int breeders,
+			int evaluators, int batchSize, int capacity) {
+		if (ga == null)
+			throw new NullPointerException();
+		if (breeders < 1 || evaluators < 1)
+			throw new IllegalArgumentException("invalid threads: " + breeders
+					+ " breeders, " + evaluators + " evaluators");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize < 1: " + batchSize);
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity < 1: " + capacity);
+
+		this.ga = ga;
+		this.breeders = breeders;
+		this.evaluators = evaluators;
+		this.batchSize = batchSize;
+		this.capacity = capacity;
+		executor = Executors.newFixedThreadPool(breeders + evaluators,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "generation-pipeline");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Breeds and evaluates a generation. The population of the genetic
+	 * algorithm is sorted afterwards, so {@link GeneticAlgorithm#select()}
+	 * needs no evaluation.
+	 *
+	 * @param crossoverRate
+	 *            probability of crossover.
+	 * @param generationGap
+	 *            ratio of offspring in the population.
+	 * @param mutationRate
+	 *            see {@link Individual#mutate(Random, double)}.
+	 * @throws IllegalArgumentException
+	 *             if rates are NaN, less than 0 or greater than 1.
+	 * @throws IllegalStateException
+	 *             if fitness of an individual is still invalid after
+	 *             evaluation, a stage fails (the cause is its exception), or
+	 *             the calling thread is interrupted (its interrupt status is
+	 *             kept). The population is not changed.
+	 */
+	public void run(double crossoverRate, double generationGap,
+			double mutationRate) {
+		GeneticAlgorithm.probabilityCheck("crossover rate", crossoverRate);
+		GeneticAlgorithm.probabilityCheck("generation gap", generationGap);
+		GeneticAlgorithm.probabilityCheck("mutation rate", mutationRate);
+
+		BlockingQueue<Batch> paired = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Batch> bred = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Batch> evaluated = new LinkedBlockingQueue<>();
+		Batch end = new Batch(0, false);
+		AtomicInteger activeBreeders = new AtomicInteger(breeders);
+
+		List<Future<?>> stages = new ArrayList<>();
+		for (int k = 0; k < breeders; k++)
+			stages.add(executor.submit(breeder(paired, bred, evaluated, end,
+					activeBreeders, crossoverRate, mutationRate)));
+		for (int k = 0; k < evaluators; k++)
+			stages.add(executor.submit(evaluator(bred, evaluated, end)));
+
+		try {
+			T[] population = ga.population;
+			int size = population.length;
+			int ng = (int) (size * generationGap);
+			T[] next = Arrays.copyOf(population, size);
+			List<Batch> batches = pair(ng);
+			batches.add(end);
+
+			// rank batches as they come; sorted runs merge fast at the end
+			int fed = 0;
+			int filled = 0;
+			for (int b = 0; b < batches.size() - 1; b++) {
+				// feed without waiting, so that ranking is not delayed; a
+				// batch fed but not yet ranked always exists here
+				while (fed < batches.size() && paired.offer(batches.get(fed)))
+					fed++;
+				Batch batch = evaluated.take();
+				if (batch.error != null)
+					throw new IllegalStateException("stage failed",
+							batch.error);
+				Collections.sort(batch.individuals, ga.getComparator());
+				for (T i : batch.individuals)
+					next[filled++] = i;
+			}
+			Arrays.sort(next, ga.getComparator());
+			ga.setSortedPopulation(next);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} finally {
+			for (Future<?> f : stages)
+				f.cancel(true);
+		}
+	}
+
+	/**
+	 * Stops threads of this pipeline.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Chooses batches of parent pairs and of survivors.
+	 */
+	private List<Batch> pair(int ng) {
+		Random random = ga.plan.getRandom();
+		T[] population = ga.population;
+		int size = population.length;
+		List<Batch> batches = new ArrayList<>();
+
+		// offspring come in pairs; an odd one out is dropped from the last
+		Batch batch = null;
+		for (int i = 0; i < ng; i += 2) {
+			if (batch == null)
+				batch = new Batch(random.nextLong(), true);
+			batch.individuals.add(population[random.nextInt(size)]);
+			batch.individuals.add(population[random.nextInt(size)]);
+			if (i + 2 >= ng || batch.individuals.size() >= batchSize) {
+				if (i + 2 > ng)
+					batch.individuals.set(batch.individuals.size() - 1, null);
+				batches.add(batch);
+				batch = null;
+			}
+		}
+
+		List<T> survivors = new ArrayList<>(Arrays.asList(population));
+		Collections.shuffle(survivors, random);
+		for (int i = ng; i < size; i++) {
+			if (batch == null)
+				batch = new Batch(random.nextLong(), false);
+			batch.individuals.add(survivors.get(i));
+			if (i + 1 == size || batch.individuals.size() >= batchSize) {
+				batches.add(batch);
+				batch = null;
+			}
+		}
+		return batches;
+	}
+
+	private Runnable breeder(final BlockingQueue<Batch> paired,
+			final BlockingQueue<Batch> bred,
+			final BlockingQueue<Batch> evaluated, final Batch end,
+			final AtomicInteger active, final double crossoverRate,
+			final double mutationRate) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (Batch b; (b = paired.take()) != end;) {
+						try {
+							breed(b, crossoverRate, mutationRate);
+						} catch (RuntimeException | Error e) {
+							b.error = e;
+							evaluated.put(b);
+							continue;
+						}
+						bred.put(b);
+					}
+					paired.put(end);
+					if (active.decrementAndGet() == 0)
+						bred.put(end);
+				} catch (InterruptedException e) {
+					// cancelled
+				}
+			}
+		};
+	}
+
+	private Runnable evaluator(final BlockingQueue<Batch> bred,
+			final BlockingQueue<Batch> evaluated, final Batch end) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (Batch b; (b = bred.take()) != end;) {
+						try {
+							evaluate(b);
+						} catch (RuntimeException | Error e) {
+							b.error = e;
+						}
+						evaluated.put(b);
+					}
+					bred.put(end);
+				} catch (InterruptedException e) {
+					// cancelled
+				}
+			}
+		};
+	}
+
+	private void breed(Batch b, double crossoverRate, double mutationRate) {
+		Random random = new Random(b.seed);
+		List<T> individuals = b.individuals;
+		Timer timer = ga.start(Phase.CROSS);
+		int clones = 0;
+		int crossovers = 0;
+		if (b.pairs) {
+			List<T> offspring = new ArrayList<>();
+			for (int i = 0; i < individuals.size(); i += 2) {
+				T x = makeClone(individuals.get(i));
+				T y = makeClone(individuals.get(i + 1) != null ? individuals
+						.get(i + 1) : individuals.get(i));
+				clones += 2;
+				x.activateWatcher();
+				y.activateWatcher();
+				if (random.nextDouble() < crossoverRate) {
+					crossovers++;
+					ga.plan.applyCrossOver(x, y);
+				}
+				offspring.add(x);
+				if (individuals.get(i + 1) != null)
+					offspring.add(y);
+			}
+			individuals.clear();
+			individuals.addAll(offspring);
+		} else {
+			for (int i = 0; i < individuals.size(); i++) {
+				T s = makeClone(individuals.get(i));
+				clones++;
+				s.activateWatcher();
+				individuals.set(i, s);
+			}
+		}
+		if (timer != null) {
+			timer.add(Counter.CROSSOVERS, crossovers);
+			timer.add(Counter.CLONES, clones);
+			timer.stop(individuals.size());
+		}
+
+		timer = ga.start(Phase.MUTATE);
+		long flipped = 0;
+		for (T i : individuals)
+			flipped += i.mutateCounting(random, mutationRate);
+		if (timer != null) {
+			timer.add(Counter.FLIPPED_BITS, flipped);
+			timer.stop(individuals.size());
+		}
+	}
+
+	private void evaluate(Batch b) {
+		List<T> invalid = new ArrayList<>();
+		for (T i : b.individuals) {
+			if (!i.hasFitness())
+				invalid.add(i);
+		}
+		if (!invalid.isEmpty())
+			ga.evaluate(invalid);
+		for (T i : invalid) {
+			if (!i.hasFitness())
+				throw new IllegalStateException("invalid fitness: " + i);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+}
@@ -5,14 +5,43 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.tailriver.science.ga.Instrumentation.Counter;
+import net.tailriver.science.ga.Instrumentation.Phase;
+import net.tailriver.science.ga.Instrumentation.Timer;
 
 public class GeneticAlgorithm<T extends Individual> {
+	/** What happens to a probable revisit without valid fitness. */
+	public enum RevisitPolicy {
+		/** the individual gets the penalty fitness without evaluation. */
+		SKIP,
+		/** bits of the individual are flipped until it is new. */
+		REGENERATE,
+		/** the individual is looked up in the fitness cache. */
+		CACHE
+	}
+
+	private static final int REGENERATE_ATTEMPTS = 16;
+
 	protected final GeneticAlgorithmPlan<T> plan;
 	protected final T[] population;
 	private Comparator<? super T> comparator;
 	private boolean sorted;
+	private final Diversity diversity = new Diversity();
+	private boolean measured;
+	private FitnessCache fitnessCache;
+	private VisitedFilter visitedFilter;
+	private RevisitPolicy revisitPolicy;
+	private double revisitPenalty = Double.NaN;
+	private Instrumentation instrumentation;
+	private int snapshotRanks;
+	private final AtomicReference<PopulationSnapshot<T>> snapshot =
+			new AtomicReference<>();
 
 	public GeneticAlgorithm(GeneticAlgorithmPlan<T> plan, int size) {
 		this.plan = plan;
@@ -39,6 +68,16 @@ public class GeneticAlgorithm<T extends Individual> {
 		sorted = false;
 	}
 
+	/**
+	 * 
+	 * @return the comparator to determine the order of the individuals;
+	 *         {@code null} if the natural ordering is used.
+	 * @see #setComparator(Comparator)
+	 */
+	public Comparator<? super T> getComparator() {
+		return comparator;
+	}
+
 	/**
 	 * Sets a simple comparator to determine the order of the individuals. A
 	 * <code>true</code> value indicates that the elements' reverse order of
@@ -52,6 +91,102 @@ public class GeneticAlgorithm<T extends Individual> {
 		setComparator(reverseOrder ? Collections.reverseOrder() : null);
 	}
 
+	/**
+	 * Sets a cache of fitness values. Individuals found in the cache are not
+	 * passed to {@link GeneticAlgorithmPlan#calculateFitness(List)}, and
+	 * fitness values calculated are stored in the cache.
+	 * 
+	 * @param fitnessCache
+	 *            the cache, or <code>null</code> to evaluate every time.
+	 * @see FitnessStore
+	 */
+	public void setFitnessCache(FitnessCache fitnessCache) {
+		this.fitnessCache = fitnessCache;
+	}
+
+	/**
+	 * Sets a filter of visited geno-types. Every individual evaluated is added
+	 * to the filter. An individual the filter reports as a revisit is not
+	 * evaluated again if it has valid fitness, and is handled by
+	 * {@code policy} otherwise. With {@link RevisitPolicy#CACHE}, only such
+	 * individuals are looked up in the fitness cache, and those missed are
+	 * evaluated and counted as false positives of the filter.
+	 * 
+	 * @param filter
+	 *            the filter, or <code>null</code> to evaluate every individual
+	 *            every time.
+	 * @param policy
+	 *            what happens to a revisit without valid fitness.
+	 * @param penalty
+	 *            fitness given to revisits with {@link RevisitPolicy#SKIP}.
+	 * @throws NullPointerException
+	 *             if {@code filter} is not <code>null</code> and {@code policy}
+	 *             is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code penalty} is NaN with {@link RevisitPolicy#SKIP}.
+	 * @see #setFitnessCache(FitnessCache)
+	 */
+	public void setVisitedFilter(VisitedFilter filter, RevisitPolicy policy,
+			double penalty) {
+		if (filter != null && policy == null)
+			throw new NullPointerException();
+		if (filter != null && policy == RevisitPolicy.SKIP
+				&& Double.isNaN(penalty))
+			throw new IllegalArgumentException("penalty is NaN");
+		visitedFilter = filter;
+		revisitPolicy = policy;
+		revisitPenalty = penalty;
+	}
+
+	/**
+	 * Sets instrumentation filled by later phases.
+	 * 
+	 * @param instrumentation
+	 *            the instrumentation, or <code>null</code> to disable.
+	 */
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
+	/**
+	 * 
+	 * @return the instrumentation, or <code>null</code> if disabled.
+	 * @see #setInstrumentation(Instrumentation)
+	 */
+	public Instrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	/**
+	 * Enables publishing a {@link PopulationSnapshot} each time the population
+	 * is sorted. A snapshot costs a pass over fitness values and copies of
+	 * {@code ranks} individuals on the thread running this genetic algorithm.
+	 * 
+	 * @param ranks
+	 *            number of the best individuals copied into a snapshot; 0 to
+	 *            stop publishing.
+	 * @throws IllegalArgumentException
+	 *             if {@code ranks} is negative.
+	 */
+	public void setSnapshotSize(int ranks) {
+		if (ranks < 0)
+			throw new IllegalArgumentException("ranks < 0: " + ranks);
+		snapshotRanks = ranks;
+	}
+
+	/**
+	 * Returns the latest snapshot of the population. Unlike other methods,
+	 * it may be called from any thread; it never blocks nor waits for the
+	 * thread running this genetic algorithm.
+	 * 
+	 * @return the latest snapshot, or <code>null</code> if none has been
+	 *         published.
+	 * @see #setSnapshotSize(int)
+	 */
+	public PopulationSnapshot<T> getSnapshot() {
+		return snapshot.get();
+	}
+
 	/**
 	 * Returns specified rank in population.
 	 * 
@@ -71,6 +206,76 @@ public class GeneticAlgorithm<T extends Individual> {
 		return makeClone(population[rank - 1]);
 	}
 
+	/**
+	 * 
+	 * @return number of population.
+	 */
+	public int getSize() {
+		return population.length;
+	}
+
+	/**
+	 * Replaces individuals at specified ranks. All ranks refer to the order
+	 * before the replacement, so the population is sorted at most once. If all
+	 * new individuals have valid fitness, the population is reordered without
+	 * being evaluated again.
+	 * 
+	 * @param ranks
+	 *            ranks to replace. BE CAREFUL. They start from <em>ONE</em>.
+	 * @param individuals
+	 *            new individuals; {@code individuals.get(k)} replaces
+	 *            {@code ranks[k]}. They are stored as they are (not cloned).
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a rank is less than 1 or greater than number of
+	 *             population.
+	 * @throws IllegalArgumentException
+	 *             if sizes of arguments differ.
+	 * @see #getRankAt(int)
+	 */
+	public void replaceAt(int[] ranks, List<? extends T> individuals) {
+		if (ranks.length != individuals.size())
+			throw new IllegalArgumentException("incosistent size: "
+					+ ranks.length + " ranks, " + individuals.size()
+					+ " individuals");
+		if (ranks.length == 0)
+			return;
+
+		sort();
+		boolean evaluated = true;
+		for (int k = 0; k < ranks.length; k++) {
+			int i = ranks[k] - 1;
+			population[i].deactivateWatcher();
+			population[i] = individuals.get(k);
+			population[i].activateWatcher();
+			evaluated &= population[i].hasFitness();
+		}
+		measured = false;
+		if (evaluated)
+			order();
+		else
+			sorted = false;
+	}
+
+	/**
+	 * Returns diversity metrics of current population. They are recounted
+	 * lazily on the first call after {@link #cross(double, double)},
+	 * {@link #mutate(double)} or {@link #select()}, so calling this method
+	 * every generation costs one pass over the population.
+	 * 
+	 * <p>
+	 * The returned object is reused and updated by later calls.
+	 * </p>
+	 * 
+	 * @return diversity metrics.
+	 */
+	public Diversity getDiversity() {
+		if (!measured) {
+			diversity.update(Arrays.asList(population));
+			measured = true;
+		}
+		return diversity;
+	}
+
 	/**
 	 * 
 	 * @param crossoverRate
@@ -83,16 +288,22 @@ public class GeneticAlgorithm<T extends Individual> {
 		probabilityCheck("crossover rate", crossoverRate);
 		probabilityCheck("generation gap", generationGap);
 
+		Timer timer = start(Phase.CROSS);
 		Random random = plan.getRandom();
 		int size = population.length;
 		List<T> before = Arrays.asList(population);
 		List<T> after = new ArrayList<>();
+		int crossovers = 0;
 		for (int i = 0; i < size; i++) {
 			T x = before.get(i);
 			T y = before.get(random.nextInt(size));
 			if (random.nextDouble() < crossoverRate) {
+				crossovers++;
 				x = makeClone(x);
 				y = makeClone(y);
+				// invalidates fitness copied from the parents
+				x.activateWatcher();
+				y.activateWatcher();
 				plan.applyCrossOver(x, y);
 			}
 			after.add(x);
@@ -109,6 +320,12 @@ public class GeneticAlgorithm<T extends Individual> {
 			population[i] = before.get(i);
 		}
 		sorted = false;
+		measured = false;
+		if (timer != null) {
+			timer.add(Counter.CROSSOVERS, crossovers);
+			timer.add(Counter.CLONES, 2 * crossovers);
+			timer.stop(size);
+		}
 	}
 
 	/**
@@ -121,10 +338,16 @@ public class GeneticAlgorithm<T extends Individual> {
 	 *             1.
 	 */
 	public void mutate(double mutationRate) {
+		Timer timer = start(Phase.MUTATE);
 		Random random = plan.getRandom();
+		long flipped = 0;
 		for (T i : population)
-			i.mutate(random, mutationRate);
+			flipped += i.mutateCounting(random, mutationRate);
+		if (timer != null)
+			timer.add(Counter.FLIPPED_BITS, flipped);
 		sorted = false;
+		measured = false;
+		stop(timer, population.length);
 	}
 
 	/**
@@ -132,10 +355,16 @@ public class GeneticAlgorithm<T extends Individual> {
 	 */
 	public void select() {
 		sort();
+		Timer timer = start(Phase.SELECT);
 		List<T> next = new ArrayList<>();
 		List<T> current = Arrays.asList(population);
+		int clones = 0;
 		for (T w : plan.applySelection(current)) {
-			T winner = next.contains(w) ? makeClone(w) : w;
+			T winner = w;
+			if (next.contains(w)) {
+				winner = makeClone(w);
+				clones++;
+			}
 			next.add(winner);
 		}
 		int size = population.length;
@@ -149,6 +378,11 @@ public class GeneticAlgorithm<T extends Individual> {
 			population[i].activateWatcher();
 		}
 		sorted = false;
+		measured = false;
+		if (timer != null) {
+			timer.add(Counter.CLONES, clones);
+			timer.stop(size);
+		}
 	}
 
 	/**
@@ -161,15 +395,174 @@ public class GeneticAlgorithm<T extends Individual> {
 		if (sorted)
 			return;
 
-		plan.calculateFitness(Arrays.asList(population));
+		evaluate(Arrays.asList(population));
+		order();
+	}
+
+	/**
+	 * Sorts the population, all of which have valid fitness.
+	 */
+	private void order() {
+		Timer timer = start(Phase.SORT);
 		Arrays.sort(population, comparator);
 		sorted = true;
+		stop(timer, population.length);
+		publish();
+	}
+
+	/**
+	 * Calculates fitness of individuals, through the visited filter and the
+	 * fitness cache if set.
+	 */
+	void evaluate(List<T> individuals) {
+		FitnessCache cache = fitnessCache;
+		VisitedFilter filter = visitedFilter;
+		if (cache == null && filter == null) {
+			calculateFitness(individuals);
+			return;
+		}
+
+		List<T> missed = new ArrayList<>();
+		for (T i : individuals) {
+			// already counted in the filter when it was evaluated
+			if (i.hasFitness())
+				continue;
+			if (filter == null) {
+				if (!cache.lookup(i))
+					missed.add(i);
+			} else if (filter.add(i)) {
+				if (revisitPolicy == RevisitPolicy.CACHE || cache == null
+						|| !cache.lookup(i))
+					missed.add(i);
+			} else if (!revisit(i, filter, cache)) {
+				missed.add(i);
+			}
+		}
+		if (missed.isEmpty())
+			return;
+		calculateFitness(missed);
+		if (cache == null)
+			return;
+		for (T i : missed) {
+			if (i.hasFitness())
+				cache.store(i);
+		}
+	}
+
+	private void calculateFitness(List<T> individuals) {
+		Timer timer = start(Phase.EVALUATE);
+		if (timer == null) {
+			plan.calculateFitness(individuals);
+			return;
+		}
+		// survivors passed along with the rest are not evaluations, and an
+		// individual may appear twice as cross() keeps parents uncloned
+		Set<T> invalid = Collections
+				.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		for (T i : individuals) {
+			if (!i.hasFitness())
+				invalid.add(i);
+		}
+		plan.calculateFitness(individuals);
+		timer.add(Counter.EVALUATIONS, invalid.size());
+		timer.stop(individuals.size());
+	}
+
+	/**
+	 * Handles a probable revisit without valid fitness by the revisit policy.
+	 * 
+	 * @return <code>true</code> if fitness is set.
+	 */
+	private boolean revisit(T individual, VisitedFilter filter,
+			FitnessCache cache) {
+		switch (revisitPolicy) {
+		case SKIP:
+			individual.setFitness(revisitPenalty);
+			return true;
+		case REGENERATE:
+			GenoType g = individual.genoType;
+			int nbit = g.getBitLength();
+			for (int k = 0; k < REGENERATE_ATTEMPTS; k++) {
+				// derived from the geno-type, not from the shared random
+				// generator, as evaluator threads of a pipeline call this
+				long h = g.longHashCode() * 0x9E3779B97F4A7C15L;
+				Mask mask = g.getMask();
+				mask.set((int) ((h >>> 32) * nbit >>> 32));
+				g.invert(mask);
+				individual.onGenoTypeChanged();
+				measured = false;
+				if (filter.add(individual))
+					break;
+			}
+			return cache != null && cache.lookup(individual);
+		case CACHE:
+			if (cache == null)
+				return false;
+			if (cache.lookup(individual))
+				return true;
+			filter.falsePositive();
+			return false;
+		default:
+			throw new AssertionError(revisitPolicy);
+		}
+	}
+
+	/**
+	 * Publishes a snapshot of the sorted population if enabled. Only the
+	 * thread running this genetic algorithm writes the reference.
+	 */
+	private void publish() {
+		if (snapshotRanks == 0)
+			return;
+		PopulationSnapshot<T> last = snapshot.get();
+		snapshot.set(new PopulationSnapshot<T>(last == null ? 0
+				: last.getEpoch() + 1, Arrays.asList(population), snapshotRanks));
+	}
+
+	/** @return timer of {@code phase}, or <code>null</code> if disabled. */
+	Timer start(Phase phase) {
+		Instrumentation i = instrumentation;
+		return i == null ? null : i.start(phase);
+	}
+
+	private static void stop(Timer timer, int individuals) {
+		if (timer != null)
+			timer.stop(individuals);
 	}
 
 	protected boolean isSorted() {
 		return sorted;
 	}
 
+	/**
+	 * Notifies that individuals of the population were changed in place.
+	 */
+	void populationChanged() {
+		sorted = false;
+		measured = false;
+	}
+
+	/**
+	 * Replaces the population with evaluated and sorted individuals. Watchers
+	 * of dropped individuals are deactivated and those of new ones activated.
+	 */
+	void setSortedPopulation(T[] next) {
+		Set<T> kept = Collections
+				.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		kept.addAll(Arrays.asList(next));
+		for (T i : population) {
+			if (!kept.contains(i))
+				i.deactivateWatcher();
+		}
+		for (int i = 0; i < population.length; i++) {
+			population[i] = next[i];
+			population[i].activateWatcher();
+		}
+		sorted = true;
+		measured = false;
+		publish();
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -0,0 +1,314 @@
+package net.tailriver.science.ga;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+
+import net.tailriver.science.ga.Instrumentation.Counter;
+
+/**
+ * Runs the generation loop of a {@link GeneticAlgorithm} until a
+ * {@link StoppingCriterion} is met. A generation is
+ * {@link GeneticAlgorithm#cross(double, double)},
+ * {@link GeneticAlgorithm#mutate(double)}, evaluation, checking the criteria,
+ * and {@link GeneticAlgorithm#select()} unless the run stops. The population
+ * is therefore evaluated and sorted when {@link #run(StoppingCriterion...)}
+ * returns.
+ *
+ * <p>
+ * A run also stops cooperatively after the current generation when
+ * {@link #stop()} is called or the running thread is interrupted; the
+ * interrupt status is kept.
+ * </p>
+ *
+ * <p>
+ * Evaluations are counted by the {@link Instrumentation} of the genetic
+ * algorithm. If it has none, the runner sets one without Flight Recorder
+ * events during the run, and removes it when the run returns.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class GeneticAlgorithmRunner<T extends Individual> {
+	/**
+	 * Callback after each generation is evaluated.
+	 *
+	 * @param <T>
+	 *            the type of individuals.
+	 */
+	public interface Listener<T extends Individual> {
+		/**
+		 *
+		 * @param progress
+		 *            progress of the run.
+		 */
+		void onGeneration(Progress<T> progress);
+	}
+
+	private final GeneticAlgorithm<T> ga;
+	private final double crossoverRate;
+	private final double generationGap;
+	private final double mutationRate;
+	private Listener<T> listener;
+	private volatile boolean stopRequested;
+
+	/**
+	 *
+	 * @param ga
+	 *            genetic algorithm to run.
+	 * @param crossoverRate
+	 *            see {@link GeneticAlgorithm#cross(double, double)}.
+	 * @param generationGap
+	 *            see {@link GeneticAlgorithm#cross(double, double)}.
+	 * @param mutationRate
+	 *            see {@link GeneticAlgorithm#mutate(double)}.
+	 * @throws NullPointerException
+	 *             if {@code ga} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if rates are NaN, less than 0 or greater than 1.
+	 */
+	public GeneticAlgorithmRunner(GeneticAlgorithm<T> ga, double crossoverRate,
+			double generationGap, double mutationRate) {
+		if (ga == null)
+			throw new NullPointerException();
+		GeneticAlgorithm.probabilityCheck("crossover rate", crossoverRate);
+		GeneticAlgorithm.probabilityCheck("generation gap", generationGap);
+		GeneticAlgorithm.probabilityCheck("mutation rate", mutationRate);
+		this.ga = ga;
+		this.crossoverRate = crossoverRate;
+		this.generationGap = generationGap;
+		this.mutationRate = mutationRate;
+	}
+
+	/**
+	 *
+	 * @param listener
+	 *            listener called after each generation, or <code>null</code>.
+	 */
+	public void setListener(Listener<T> listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Runs generations until any of {@code criteria} is met, {@link #stop()}
+	 * is called, or the thread is interrupted.
+	 *
+	 * @param criteria
+	 *            stopping criteria, checked in this order.
+	 * @return progress at the end of the run.
+	 * @throws NullPointerException
+	 *             if {@code criteria} contains <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code criteria} is empty.
+	 */
+	public Progress<T> run(StoppingCriterion... criteria) {
+		StoppingCriterion[] stops = StoppingCriteria.check(criteria);
+		if (stops.length == 0)
+			throw new IllegalArgumentException("no stopping criterion");
+
+		Instrumentation instrumentation = ga.getInstrumentation();
+		boolean installed = instrumentation == null;
+		if (installed) {
+			instrumentation = new Instrumentation(false);
+			ga.setInstrumentation(instrumentation);
+		}
+		Progress<T> progress = new Progress<>(ga, instrumentation);
+		try {
+			return loop(stops, progress);
+		} finally {
+			if (installed)
+				ga.setInstrumentation(null);
+		}
+	}
+
+	private Progress<T> loop(StoppingCriterion[] stops, Progress<T> progress) {
+		stopRequested = false;
+		Thread current = Thread.currentThread();
+		while (true) {
+			ga.cross(crossoverRate, generationGap);
+			ga.mutate(mutationRate);
+			progress.update(ga.getRankAt(1));
+
+			Listener<T> l = listener;
+			if (l != null)
+				l.onGeneration(progress);
+			for (StoppingCriterion c : stops) {
+				if (c.isMet(progress))
+					return progress.stop(c.toString());
+			}
+			if (stopRequested)
+				return progress.stop("stopped");
+			if (current.isInterrupted())
+				return progress.stop("interrupted");
+
+			ga.select();
+		}
+	}
+
+	/**
+	 * Requests the running {@link #run(StoppingCriterion...)} to stop after
+	 * the current generation. It may be called from any thread.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Progress of a run. It is updated in place by the runner after each
+	 * generation.
+	 *
+	 * @param <T>
+	 *            the type of individuals.
+	 */
+	public static final class Progress<T extends Individual> {
+		private static final ThreadMXBean THREADS = ManagementFactory
+				.getThreadMXBean();
+
+		private final GeneticAlgorithm<T> ga;
+		private final Instrumentation instrumentation;
+		private final long evaluations0;
+		private final long start = System.nanoTime();
+		private final long cpuStart = cpuTime();
+		private long generation;
+		private T best;
+		private T generationBest;
+		private boolean improved;
+		private long stagnation;
+		private String stopReason;
+
+		private Progress(GeneticAlgorithm<T> ga,
+				Instrumentation instrumentation) {
+			this.ga = ga;
+			this.instrumentation = instrumentation;
+			evaluations0 = instrumentation.getCount(Counter.EVALUATIONS);
+		}
+
+		/**
+		 *
+		 * @return number of generations evaluated.
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 *
+		 * @return copy of the best individual of the run.
+		 */
+		public T getBest() {
+			return best;
+		}
+
+		/**
+		 *
+		 * @return copy of the best individual of the last generation.
+		 */
+		public T getGenerationBest() {
+			return generationBest;
+		}
+
+		/**
+		 *
+		 * @return <code>true</code> if the last generation improved the best
+		 *         individual of the run.
+		 */
+		public boolean isImproved() {
+			return improved;
+		}
+
+		/**
+		 *
+		 * @return number of generations since the best individual was last
+		 *         improved.
+		 */
+		public long getStagnation() {
+			return stagnation;
+		}
+
+		/**
+		 *
+		 * @return number of individuals evaluated in the run.
+		 */
+		public long getEvaluations() {
+			return instrumentation.getCount(Counter.EVALUATIONS) - evaluations0;
+		}
+
+		/**
+		 *
+		 * @return wall-clock time of the run in nanoseconds.
+		 */
+		public long getElapsedNanos() {
+			return System.nanoTime() - start;
+		}
+
+		/**
+		 *
+		 * @return CPU time of the thread running the run in nanoseconds, or
+		 *         -1 if not supported. It is valid only on that thread.
+		 */
+		public long getCpuNanos() {
+			long t = cpuTime();
+			return t < 0 || cpuStart < 0 ? -1 : t - cpuStart;
+		}
+
+		/**
+		 *
+		 * @return diversity of the current population.
+		 * @see GeneticAlgorithm#getDiversity()
+		 */
+		public Diversity getDiversity() {
+			return ga.getDiversity();
+		}
+
+		/**
+		 *
+		 * @return description of the criterion which stopped the run,
+		 *         {@code "stopped"} or {@code "interrupted"}; <code>null</code>
+		 *         while running.
+		 */
+		public String getStopReason() {
+			return stopReason;
+		}
+
+		@Override
+		public String toString() {
+			return "generation=" + generation + ", best="
+					+ (best == null ? null : best.getFitness())
+					+ ", stagnation=" + stagnation + ", evaluations="
+					+ getEvaluations() + ", elapsed=" + getElapsedNanos()
+					/ 1000000 + "ms"
+					+ (stopReason == null ? "" : ", stop=" + stopReason);
+		}
+
+		private void update(T top) {
+			generation++;
+			generationBest = top;
+			improved = best == null || compare(top, best) < 0;
+			if (improved) {
+				best = top;
+				stagnation = 0;
+			} else {
+				stagnation++;
+			}
+		}
+
+		private Progress<T> stop(String reason) {
+			stopReason = reason;
+			return this;
+		}
+
+		/** @return negative if {@code x} ranks before {@code y}. */
+		private int compare(T x, T y) {
+			Comparator<? super T> c = ga.getComparator();
+			return c == null ? x.compareTo(y) : c.compare(x, y);
+		}
+
+		private static long cpuTime() {
+			return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS
+					.getCurrentThreadCpuTime() : -1;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package net.tailriver.science.ga;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,6 +39,12 @@ public class GenoType implements Serializable {
 	 */
 	private final BitSet chromosome;
 
+	/**
+	 * Zobrist hash of chromosome: XOR of {@link #hashKey(int)} for all set
+	 * bits. It is updated incrementally whenever a bit is flipped.
+	 */
+	private transient long hash;
+
 	/**
 	 * Observer pattern.
 	 */
@@ -91,6 +99,7 @@ public class GenoType implements Serializable {
 
 		// deep copy
 		chromosome = (BitSet) original.chromosome.clone();
+		hash = original.hash;
 
 		// watcher is null
 	}
@@ -132,7 +141,9 @@ public class GenoType implements Serializable {
 	}
 
 	/**
-	 * 
+	 * Returns long value of specified index of geno-type. It allocates
+	 * nothing, so it is suitable for decoding a whole population.
+	 *
 	 * @param i
 	 *            index of geno-type.
 	 * @return long value of specified index of geno-type.
@@ -143,13 +154,114 @@ public class GenoType implements Serializable {
 	 */
 	public final long getLong(int i) {
 		checkLongRange(i);
-		long[] v = getBitSet(i).toLongArray();
-		return v.length == 1 ? v[0] : 0;
+		int from = offsetArray[i];
+		int to = offsetArray[i + 1];
+		long v = 0;
+		for (int b = chromosome.nextSetBit(from); b >= 0 && b < to;
+				b = chromosome.nextSetBit(b + 1))
+			v |= 1L << b - from;
+		return v;
+	}
+
+	/**
+	 * 
+	 * @return total bit length of the chromosome.
+	 */
+	public final int getBitLength() {
+		return offsetArray[length];
+	}
+
+	/**
+	 * 
+	 * @param bitIndex
+	 *            index of chromosome bit (not index of geno-type).
+	 * @return value of the bit.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code bitIndex} is negative.
+	 */
+	public final boolean getBit(int bitIndex) {
+		return chromosome.get(bitIndex);
+	}
+
+	/**
+	 * Adds one to {@code counts[n]} for each set bit {@code n} of the
+	 * chromosome. It allocates nothing.
+	 * 
+	 * @param counts
+	 *            counters; the length must be {@link #getBitLength()} or more.
+	 */
+	final void addBitCounts(int[] counts) {
+		for (int i = chromosome.nextSetBit(0); i >= 0; i = chromosome
+				.nextSetBit(i + 1))
+			counts[i]++;
+	}
+
+	/**
+	 *
+	 * @return number of set bits of the chromosome.
+	 */
+	final int cardinality() {
+		return chromosome.cardinality();
+	}
+
+	/**
+	 * Returns raw chromosome bits as words. Bit {@code n} of the chromosome is
+	 * {@code (words[n / 64] & (1L << (n % 64))) != 0}. Trailing zero words
+	 * are omitted as {@link BitSet#toLongArray()} does.
+	 * 
+	 * @return newly allocated array of chromosome words.
+	 * @see #setLongArray(long[])
+	 */
+	public final long[] toLongArray() {
+		return chromosome.toLongArray();
+	}
+
+	/**
+	 *
+	 * @return number of words to hold {@link #getBitLength()} bits.
+	 */
+	public final int getWordCount() {
+		return (offsetArray[length] + Long.SIZE - 1) / Long.SIZE;
+	}
+
+	/**
+	 * Copies chromosome words in the format of {@link #toLongArray()}, but
+	 * padded with zero words to {@link #getWordCount()} words. This is the
+	 * fixed-length record of the chromosome.
+	 *
+	 * <p>
+	 * It allocates a temporary array per call through
+	 * {@link BitSet#toLongArray()}, as {@link BitSet} exposes its words in no
+	 * other way. Copying runs of set bits instead would allocate nothing, but
+	 * is 10 to 100 times slower for random chromosomes.
+	 * </p>
+	 *
+	 * @param words
+	 *            array to store the words.
+	 * @param offset
+	 *            index of {@code words} to store the first word.
+	 * @throws NullPointerException
+	 *             if {@code words} is null.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code words} has less than {@link #getWordCount()}
+	 *             elements from {@code offset}.
+	 */
+	public final void copyWords(long[] words, int offset) {
+		int n = getWordCount();
+		if (offset < 0 || offset > words.length - n)
+			throw new IndexOutOfBoundsException("offset: " + offset);
+		long[] a = chromosome.toLongArray();
+		System.arraycopy(a, 0, words, offset, a.length);
+		Arrays.fill(words, offset + a.length, offset + n, 0);
 	}
 
 	protected final void setBoolean(int i, boolean value) {
 		checkBooleanRange(i);
-		chromosome.set(offsetArray[i], value);
+		int bitIndex = offsetArray[i];
+		if (chromosome.get(bitIndex) != value) {
+			chromosome.flip(bitIndex);
+			hash ^= hashKey(bitIndex);
+		}
 		notifyGenoTypeChanged();
 	}
 
@@ -157,11 +269,33 @@ public class GenoType implements Serializable {
 		int offset = offsetArray[i];
 		int max = offsetArray[i + 1] - offset;
 		for (int j = 0; j < max; j++) {
-			chromosome.set(offset + j, value.get(j));
+			if (chromosome.get(offset + j) != value.get(j)) {
+				chromosome.flip(offset + j);
+				hash ^= hashKey(offset + j);
+			}
 		}
 		notifyGenoTypeChanged();
 	}
 
+	/**
+	 * Replaces all chromosome bits.
+	 * 
+	 * @param words
+	 *            chromosome words in the format of {@link #toLongArray()}.
+	 *            Bits beyond {@link #getBitLength()} are ignored.
+	 * @throws NullPointerException
+	 *             if {@code words} is null.
+	 */
+	protected final void setLongArray(long[] words) {
+		chromosome.clear();
+		chromosome.or(BitSet.valueOf(words));
+		int bitLength = offsetArray[length];
+		if (chromosome.length() > bitLength)
+			chromosome.clear(bitLength, chromosome.length());
+		hash = computeHash();
+		notifyGenoTypeChanged();
+	}
+
 	private final void checkBooleanRange(int i) {
 		if (getLength(i) != 1)
 			throw new IllegalArgumentException("index [" + i
@@ -197,8 +331,10 @@ public class GenoType implements Serializable {
 		if (mask.isEmpty())
 			return;
 
-		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1))
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
 			chromosome.flip(i);
+			hash ^= hashKey(i);
+		}
 		notifyGenoTypeChanged();
 	}
 
@@ -226,20 +362,39 @@ public class GenoType implements Serializable {
 			return;
 
 		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
-			boolean temp = a.chromosome.get(i);
-			a.chromosome.set(i, b.chromosome.get(i));
-			b.chromosome.set(i, temp);
+			// only different bits are changed by swapping
+			if (a.chromosome.get(i) != b.chromosome.get(i)) {
+				long key = hashKey(i);
+				a.chromosome.flip(i);
+				a.hash ^= key;
+				b.chromosome.flip(i);
+				b.hash ^= key;
+			}
 		}
 		a.notifyGenoTypeChanged();
 		b.notifyGenoTypeChanged();
 	}
 
+	/**
+	 * Returns 64-bit hash code of chromosome. It is maintained incrementally,
+	 * so this method runs in constant time regardless of the length. The
+	 * value depends only on the chromosome bits; it is same for copies and
+	 * across serialization.
+	 * 
+	 * @return Zobrist hash of chromosome.
+	 */
+	public final long longHashCode() {
+		return hash;
+	}
+
 	/**
 	 * Returns hash code of chromosome object.
+	 * 
+	 * @see #longHashCode()
 	 */
 	@Override
 	public int hashCode() {
-		return chromosome.hashCode();
+		return (int) (hash ^ hash >>> 32);
 	}
 
 	@Override
@@ -266,6 +421,36 @@ public class GenoType implements Serializable {
 		return Arrays.equals(offsetArray, c.offsetArray);
 	}
 
+	private long computeHash() {
+		long h = 0;
+		for (int i = chromosome.nextSetBit(0); i >= 0; i = chromosome
+				.nextSetBit(i + 1))
+			h ^= hashKey(i);
+		return h;
+	}
+
+	/**
+	 * Random key of a chromosome bit for Zobrist hashing. Keys are generated
+	 * by the SplitMix64 finalizer, so they need no table and are identical in
+	 * every JVM.
+	 * 
+	 * @param bitIndex
+	 *            index of chromosome bit.
+	 * @return 64-bit key.
+	 */
+	private static long hashKey(int bitIndex) {
+		long z = (bitIndex + 1L) * 0x9E3779B97F4A7C15L;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		hash = computeHash();
+	}
+
 	@Override
 	public String toString() {
 		final char delimiter = ' ';
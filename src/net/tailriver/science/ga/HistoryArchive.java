@@ -0,0 +1,534 @@
+package net.tailriver.science.ga;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Archive of the population of every generation, compressed as differences
+ * from the previous generation.
+ *
+ * <p>
+ * Every {@code keyframeInterval} generations (and whenever the population
+ * size changes) a generation is stored as it is (a keyframe). Others are
+ * stored as XOR deltas: each individual refers to an individual of the
+ * previous generation (one with the same geno-type if any, otherwise the one
+ * at the same position), and only differing words are written with
+ * run-length and varint coding. An index file of record offsets, named as
+ * the archive plus <code>.idx</code>, lets a reader decode any generation
+ * from its nearest keyframe.
+ * </p>
+ *
+ * <pre>
+ * header:  int magic, int version, int length, int[length] bit size of each
+ *          index of geno-type
+ * record:  byte kind (0 keyframe, 1 delta), int count, int payload bytes,
+ *          payload
+ * keyframe payload: count * (long fitness bits, long[words] chromosome words)
+ * delta payload:    count * (varint reference, varint reversed XOR of fitness
+ *                   bits, XOR of chromosome words)
+ * XOR of words:     repeated (varint zero words, nonzero word) up to words;
+ *                   a nonzero word is varint n, then n bit positions if
+ *                   n &lt;= 8, otherwise 8 raw bytes
+ * </pre>
+ *
+ * @author tailriver
+ *
+ */
+public final class HistoryArchive {
+	/** magic number of an archive: "GAH1". */
+	public static final int MAGIC = 0x47414831;
+
+	/** version of the format. */
+	public static final int VERSION = 1;
+
+	private static final byte KEYFRAME = 0;
+	private static final byte DELTA = 1;
+	private static final int RECORD_HEADER = 9;
+	private static final int MAX_BACKLOG = 4;
+
+	private HistoryArchive() {
+	}
+
+	/** Population copied for writing. */
+	private static final class Generation {
+		final int count;
+		final long[] fitness;
+		final long[] words;
+		final long[] hashes;
+
+		Generation(int count, int wordCount) {
+			this.count = count;
+			fitness = new long[count];
+			words = new long[count * wordCount];
+			hashes = new long[count];
+		}
+	}
+
+	/**
+	 * Appends generations to an archive. Encoding and writing run on a
+	 * background thread.
+	 */
+	public static final class Writer implements Closeable {
+		private final FileChannel data;
+		private final FileChannel index;
+		private final int keyframeInterval;
+		private final GenoType schema;
+		private final int wordCount;
+		private final ExecutorService writer;
+		private final Semaphore backlog = new Semaphore(MAX_BACKLOG);
+		private Future<?> pending;
+
+		// used only by the background thread
+		private Generation previous;
+		private long generations;
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		/**
+		 * Creates a new archive, replacing an existing one.
+		 *
+		 * @param file
+		 *            archive file.
+		 * @param template
+		 *            individual whose geno-type gives the schema.
+		 * @param keyframeInterval
+		 *            number of generations between keyframes.
+		 * @throws IllegalArgumentException
+		 *             if {@code keyframeInterval} is less than 1.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public Writer(Path file, Individual template, int keyframeInterval)
+				throws IOException {
+			if (keyframeInterval < 1)
+				throw new IllegalArgumentException("keyframeInterval < 1: "
+						+ keyframeInterval);
+			this.keyframeInterval = keyframeInterval;
+			schema = template.genoType;
+			wordCount = schema.getWordCount();
+			data = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			index = FileChannel.open(indexFile(file),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+
+			ByteBuffer header = ByteBuffer.allocate(12 + 4 * schema.length);
+			header.putInt(MAGIC).putInt(VERSION).putInt(schema.length);
+			for (int i = 0; i < schema.length; i++)
+				header.putInt(schema.getLength(i));
+			header.flip();
+			writeFully(data, header);
+
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "history-writer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		/**
+		 * Copies a population and writes it in the background as the next
+		 * generation. It waits only if several generations are still waiting
+		 * to be written.
+		 *
+		 * @param population
+		 *            individuals to write. Invalid fitness is written as NaN.
+		 * @throws IllegalArgumentException
+		 *             if the schema of a geno-type differs.
+		 * @throws IllegalStateException
+		 *             if a previous write failed, or the calling thread is
+		 *             interrupted (its interrupt status is kept).
+		 */
+		public synchronized void append(List<? extends Individual> population) {
+			checkPending(false);
+
+			final Generation g = new Generation(population.size(), wordCount);
+			for (int i = 0; i < g.count; i++) {
+				Individual individual = population.get(i);
+				GenoType genoType = individual.genoType;
+				if (genoType != schema && !genoType.equalsSchema(schema))
+					throw new IllegalArgumentException("schema differs");
+				g.fitness[i] = Double.doubleToRawLongBits(individual
+						.hasFitness() ? individual.getFitness() : Double.NaN);
+				g.hashes[i] = genoType.longHashCode();
+				genoType.copyWords(g.words, i * wordCount);
+			}
+
+			try {
+				backlog.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted", e);
+			}
+			final Future<?> before = pending;
+			pending = writer.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					try {
+						// do not write after a failure
+						if (before != null)
+							before.get();
+						write(g);
+						return null;
+					} finally {
+						backlog.release();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Waits for pending writes, and closes files.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs, including in pending writes.
+		 */
+		@Override
+		public synchronized void close() throws IOException {
+			try {
+				checkPending(true);
+			} catch (IllegalStateException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw e;
+			} finally {
+				writer.shutdown();
+				try {
+					data.close();
+				} finally {
+					index.close();
+				}
+			}
+		}
+
+		private void checkPending(boolean wait) {
+			if (pending == null || !wait && !pending.isDone())
+				return;
+			try {
+				pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				while (cause instanceof ExecutionException)
+					cause = cause.getCause();
+				throw new IllegalStateException("write failed", cause);
+			}
+		}
+
+		private void write(Generation g) throws IOException {
+			boolean keyframe = previous == null
+					|| previous.count != g.count
+					|| generations % keyframeInterval == 0;
+			buffer.clear();
+			buffer.position(RECORD_HEADER);
+			if (keyframe)
+				encodeKeyframe(g);
+			else
+				encodeDelta(g);
+			int payload = buffer.position() - RECORD_HEADER;
+			buffer.put(0, keyframe ? KEYFRAME : DELTA);
+			buffer.putInt(1, g.count);
+			buffer.putInt(5, payload);
+			buffer.flip();
+
+			ByteBuffer offset = ByteBuffer.allocate(8);
+			offset.putLong(data.position()).flip();
+			writeFully(data, buffer);
+			writeFully(index, offset);
+			previous = g;
+			generations++;
+		}
+
+		private void encodeKeyframe(Generation g) {
+			for (int i = 0; i < g.count; i++) {
+				ensure(8 + 8 * wordCount);
+				buffer.putLong(g.fitness[i]);
+				for (int w = 0; w < wordCount; w++)
+					buffer.putLong(g.words[i * wordCount + w]);
+			}
+		}
+
+		private void encodeDelta(Generation g) {
+			Map<Long, Integer> byHash = new HashMap<>();
+			for (int i = 0; i < previous.count; i++)
+				byHash.put(previous.hashes[i], i);
+
+			for (int i = 0; i < g.count; i++) {
+				Integer match = byHash.get(g.hashes[i]);
+				int ref = match != null ? match : i;
+				ensure(20 + 17 * wordCount);
+				putVarint(ref);
+				putVarint(Long.reverse(g.fitness[i] ^ previous.fitness[ref]));
+
+				long[] x = g.words;
+				long[] y = previous.words;
+				int base = i * wordCount;
+				int refBase = ref * wordCount;
+				for (int w = 0; w < wordCount;) {
+					int zeros = 0;
+					while (w + zeros < wordCount
+							&& x[base + w + zeros] == y[refBase + w + zeros])
+						zeros++;
+					putVarint(zeros);
+					w += zeros;
+					if (w < wordCount) {
+						putWord(x[base + w] ^ y[refBase + w]);
+						w++;
+					}
+				}
+			}
+		}
+
+		private void putWord(long x) {
+			int n = Long.bitCount(x);
+			putVarint(n);
+			if (n <= 8) {
+				for (long v = x; v != 0; v &= v - 1)
+					buffer.put((byte) Long.numberOfTrailingZeros(v));
+			} else {
+				buffer.putLong(x);
+			}
+		}
+
+		private void putVarint(long v) {
+			while ((v & ~0x7FL) != 0) {
+				buffer.put((byte) (v & 0x7F | 0x80));
+				v >>>= 7;
+			}
+			buffer.put((byte) v);
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() >= bytes)
+				return;
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(
+					buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+
+	/**
+	 * Reads generations of an archive in any order.
+	 */
+	public static final class Reader implements Closeable {
+		private final FileChannel data;
+		private final long[] offsets;
+		private final int[] bitSizes;
+
+		/**
+		 *
+		 * @param file
+		 *            archive file. Its index file must exist.
+		 * @throws IOException
+		 *             if an I/O error occurs, or the header is invalid.
+		 */
+		public Reader(Path file) throws IOException {
+			data = FileChannel.open(file, StandardOpenOption.READ);
+			try (FileChannel index = FileChannel.open(indexFile(file),
+					StandardOpenOption.READ)) {
+				ByteBuffer header = read(0, 12);
+				if (header.getInt() != MAGIC)
+					throw new IOException("invalid magic");
+				int version = header.getInt();
+				if (version != VERSION)
+					throw new IOException("unsupported version: " + version);
+				bitSizes = new int[header.getInt()];
+				ByteBuffer sizes = read(12, 4 * bitSizes.length);
+				for (int i = 0; i < bitSizes.length; i++)
+					bitSizes[i] = sizes.getInt();
+
+				ByteBuffer entries = ByteBuffer.allocate((int) index.size()
+						/ 8 * 8);
+				while (entries.hasRemaining() && index.read(entries) >= 0)
+					continue;
+				entries.flip();
+				offsets = new long[entries.remaining() / 8];
+				for (int g = 0; g < offsets.length; g++)
+					offsets[g] = entries.getLong();
+			} catch (IOException | RuntimeException e) {
+				data.close();
+				throw e;
+			}
+		}
+
+		/**
+		 *
+		 * @return number of generations in the archive.
+		 */
+		public int getGenerationCount() {
+			return offsets.length;
+		}
+
+		/**
+		 * Reads a generation. It decodes records from the nearest keyframe.
+		 *
+		 * @param generation
+		 *            generation number, from 0.
+		 * @param template
+		 *            individual to copy. Its geno-type must have the schema of
+		 *            the archive.
+		 * @return new individuals of the generation in the order written.
+		 * @throws IndexOutOfBoundsException
+		 *             if {@code generation} is out of range.
+		 * @throws IllegalArgumentException
+		 *             if the schema of {@code template} differs.
+		 * @throws IOException
+		 *             if an I/O error occurs, or the archive is corrupted.
+		 */
+		public <T extends Individual> List<T> read(int generation, T template)
+				throws IOException {
+			if (generation < 0 || generation >= offsets.length)
+				throw new IndexOutOfBoundsException("generation: "
+						+ generation);
+			GenoType schema = template.genoType;
+			boolean match = schema.length == bitSizes.length;
+			for (int i = 0; match && i < bitSizes.length; i++)
+				match = schema.getLength(i) == bitSizes[i];
+			if (!match)
+				throw new IllegalArgumentException("schema differs");
+			int wordCount = schema.getWordCount();
+
+			int key = generation;
+			while (read(offsets[key], 1).get() != KEYFRAME) {
+				if (--key < 0)
+					throw new IOException("no keyframe");
+			}
+
+			long[] fitness = null;
+			long[] words = null;
+			for (int g = key; g <= generation; g++) {
+				ByteBuffer header = read(offsets[g], RECORD_HEADER);
+				byte kind = header.get();
+				int count = header.getInt();
+				ByteBuffer payload = read(offsets[g] + RECORD_HEADER,
+						header.getInt());
+				long[] f = new long[count];
+				long[] w = new long[count * wordCount];
+				if (kind == KEYFRAME) {
+					for (int i = 0; i < count; i++) {
+						f[i] = payload.getLong();
+						for (int j = 0; j < wordCount; j++)
+							w[i * wordCount + j] = payload.getLong();
+					}
+				} else {
+					decodeDelta(payload, count, wordCount, fitness, words, f,
+							w);
+				}
+				fitness = f;
+				words = w;
+			}
+
+			List<T> population = new ArrayList<>();
+			long[] chromosome = new long[wordCount];
+			for (int i = 0; i < fitness.length; i++) {
+				System.arraycopy(words, i * wordCount, chromosome, 0,
+						wordCount);
+				T individual = makeClone(template);
+				individual.genoType.setLongArray(chromosome);
+				individual.onGenoTypeChanged();
+				double value = Double.longBitsToDouble(fitness[i]);
+				if (!Double.isNaN(value))
+					individual.setFitness(value);
+				population.add(individual);
+			}
+			return population;
+		}
+
+		@Override
+		public void close() throws IOException {
+			data.close();
+		}
+
+		private static void decodeDelta(ByteBuffer payload, int count,
+				int wordCount, long[] prevFitness, long[] prevWords,
+				long[] fitness, long[] words) throws IOException {
+			try {
+				for (int i = 0; i < count; i++) {
+					int ref = (int) getVarint(payload);
+					fitness[i] = prevFitness[ref]
+							^ Long.reverse(getVarint(payload));
+					int base = i * wordCount;
+					System.arraycopy(prevWords, ref * wordCount, words, base,
+							wordCount);
+					for (int w = 0; w < wordCount;) {
+						w += (int) getVarint(payload);
+						if (w < wordCount) {
+							words[base + w] ^= getWord(payload);
+							w++;
+						}
+					}
+				}
+			} catch (RuntimeException e) {
+				throw new IOException("corrupted delta", e);
+			}
+		}
+
+		private static long getWord(ByteBuffer payload) {
+			int n = (int) getVarint(payload);
+			if (n > 8)
+				return payload.getLong();
+			long x = 0;
+			for (int k = 0; k < n; k++)
+				x |= 1L << payload.get();
+			return x;
+		}
+
+		private static long getVarint(ByteBuffer payload) {
+			long v = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = payload.get();
+				v |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return v;
+			}
+		}
+
+		private ByteBuffer read(long position, int bytes) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(bytes);
+			while (buffer.hasRemaining()) {
+				if (data.read(buffer, position + buffer.position()) < 0)
+					throw new EOFException();
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	private static Path indexFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".idx");
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+}
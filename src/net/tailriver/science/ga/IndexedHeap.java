@@ -0,0 +1,103 @@
+package net.tailriver.science.ga;
+
+import java.util.Comparator;
+
+/**
+ * Binary heap of indices into an external array. The element at the root is
+ * the first one in the given order. When an element of the array is replaced,
+ * {@link #update(int)} restores the heap in O(log n).
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of elements.
+ */
+final class IndexedHeap<T> {
+	private final T[] elements;
+	private final Comparator<? super T> order;
+
+	/** heap position to element index. */
+	private final int[] heap;
+
+	/** element index to heap position. */
+	private final int[] position;
+
+	/**
+	 * Builds a heap over all elements in O(n).
+	 *
+	 * @param elements
+	 *            array to index. It is shared, not copied.
+	 * @param order
+	 *            the root is the first element in this order.
+	 */
+	IndexedHeap(T[] elements, Comparator<? super T> order) {
+		this.elements = elements;
+		this.order = order;
+		heap = new int[elements.length];
+		position = new int[elements.length];
+		for (int i = 0; i < heap.length; i++) {
+			heap[i] = i;
+			position[i] = i;
+		}
+		for (int p = heap.length / 2 - 1; p >= 0; p--)
+			siftDown(p);
+	}
+
+	/**
+	 *
+	 * @return index of the first element in the order.
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Restores the heap after {@code elements[index]} has been replaced.
+	 *
+	 * @param index
+	 *            index of the replaced element.
+	 */
+	void update(int index) {
+		int p = position[index];
+		siftUp(p);
+		siftDown(position[index]);
+	}
+
+	private void siftUp(int p) {
+		while (p > 0) {
+			int parent = (p - 1) / 2;
+			if (compare(p, parent) >= 0)
+				break;
+			swap(p, parent);
+			p = parent;
+		}
+	}
+
+	private void siftDown(int p) {
+		int n = heap.length;
+		for (;;) {
+			int child = 2 * p + 1;
+			if (child >= n)
+				break;
+			if (child + 1 < n && compare(child + 1, child) < 0)
+				child++;
+			if (compare(child, p) >= 0)
+				break;
+			swap(p, child);
+			p = child;
+		}
+	}
+
+	private int compare(int p, int q) {
+		return order.compare(elements[heap[p]], elements[heap[q]]);
+	}
+
+	private void swap(int p, int q) {
+		int a = heap[p];
+		int b = heap[q];
+		heap[p] = b;
+		heap[q] = a;
+		position[b] = p;
+		position[a] = q;
+	}
+}
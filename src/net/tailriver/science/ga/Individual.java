@@ -24,6 +24,19 @@ public class Individual implements Cloneable, Comparable<Individual>,
 		GenoTypeWatcher, Serializable {
 	private static final long serialVersionUID = -35172888649712656L;
 
+	/** whether a class overrides {@link #mutate(Random, double)}. */
+	private static final ClassValue<Boolean> MUTATE_OVERRIDDEN = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("mutate", Random.class, double.class)
+						.getDeclaringClass() != Individual.class;
+			} catch (NoSuchMethodException e) {
+				throw new AssertionError(e);
+			}
+		}
+	};
+
 	/**
 	 * @serial
 	 */
@@ -89,6 +102,16 @@ public class Individual implements Cloneable, Comparable<Individual>,
 		return genoType.getLong(i);
 	}
 
+	/**
+	 * Gets raw chromosome words.
+	 * 
+	 * @return newly allocated array of chromosome words.
+	 * @see GenoType#toLongArray()
+	 */
+	public final long[] toGenoTypeLongArray() {
+		return genoType.toLongArray();
+	}
+
 	/**
 	 * Gets full-ranged double value from specified index of chromosome.
 	 * 
@@ -239,14 +262,48 @@ public class Individual implements Cloneable, Comparable<Individual>,
 	 *             if {@code probability} is NaN, less than 0 or greater than 1.
 	 */
 	public void mutate(Random random, double probability) {
+		flip(random, probability);
+	}
+
+	/**
+	 * Mutates as {@link #mutate(Random, double)}, and counts flipped bits for
+	 * {@link Instrumentation}. If a subclass overrides {@code mutate}, it is
+	 * called instead, and flipped bits are counted by comparing chromosomes.
+	 * 
+	 * @return number of flipped bits.
+	 */
+	final int mutateCounting(Random random, double probability) {
+		if (MUTATE_OVERRIDDEN.get(getClass())) {
+			long[] before = genoType.toLongArray();
+			mutate(random, probability);
+			return distance(before, genoType.toLongArray());
+		}
+		return flip(random, probability);
+	}
+
+	/** @return number of bits set in the mask, i.e. flipped. */
+	private int flip(Random random, double probability) {
 		GeneticAlgorithm.probabilityCheck("mutation rate", probability);
 
 		Mask mask = genoType.getMask();
+		int flipped = 0;
 		for (int i = 0, max = mask.length; i < max; i++) {
-			if (random.nextDouble() < probability)
+			if (random.nextDouble() < probability) {
 				mask.set(i);
+				flipped++;
+			}
 		}
 		genoType.invert(mask);
+		return flipped;
+	}
+
+	/** @return number of different bits of chromosome words. */
+	private static int distance(long[] a, long[] b) {
+		int d = 0;
+		for (int w = 0, max = Math.max(a.length, b.length); w < max; w++)
+			d += Long.bitCount((w < a.length ? a[w] : 0)
+					^ (w < b.length ? b[w] : 0));
+		return d;
 	}
 
 	/**
@@ -0,0 +1,250 @@
+package net.tailriver.science.ga;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compact binary format of individuals, much smaller and faster than Java
+ * serialization of {@link Individual} and {@link GenoType}.
+ *
+ * <p>
+ * A stream starts with a header, which holds the schema of geno-types once.
+ * Records of individuals follow up to the end of the stream. All values are
+ * big-endian.
+ * </p>
+ *
+ * <pre>
+ * header: int magic ({@value #MAGIC}), int version ({@value #VERSION}),
+ *         int length, int[length] bit size of each index of geno-type
+ * record: double fitness (NaN if invalid), long[words] chromosome words
+ * </pre>
+ *
+ * <p>
+ * {@code words} is the total bit length divided by 64 and rounded up; see
+ * {@link GenoType#toLongArray()} for the bit order. Pheno-types are not
+ * written. Channels must be in blocking mode.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public final class IndividualCodec {
+	/** magic number of a stream: "GAC1". */
+	public static final int MAGIC = 0x47414331;
+
+	/** version of the format. */
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private IndividualCodec() {
+	}
+
+	/**
+	 * Writes individuals of the same schema to a channel.
+	 */
+	public static final class Writer implements Closeable {
+		private final WritableByteChannel channel;
+		private final GenoType schema;
+		private final int words;
+		private final ByteBuffer buffer;
+		private final long[] chromosome;
+
+		/**
+		 * Creates a writer and writes the header.
+		 *
+		 * @param channel
+		 *            channel to write.
+		 * @param template
+		 *            individual whose geno-type gives the schema.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public Writer(WritableByteChannel channel, Individual template)
+				throws IOException {
+			this.channel = channel;
+			schema = template.genoType;
+			words = schema.getWordCount();
+			chromosome = new long[words];
+			buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE,
+					8 + 8 * words));
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(schema.length);
+			for (int i = 0; i < schema.length; i++) {
+				ensure(4);
+				buffer.putInt(schema.getLength(i));
+			}
+		}
+
+		/**
+		 * Writes an individual.
+		 *
+		 * @param individual
+		 *            individual to write.
+		 * @throws IllegalArgumentException
+		 *             if the schema of geno-type differs.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public void write(Individual individual) throws IOException {
+			GenoType g = individual.genoType;
+			if (g != schema && !g.equalsSchema(schema))
+				throw new IllegalArgumentException("schema differs");
+
+			ensure(8 + 8 * words);
+			buffer.putDouble(individual.hasFitness() ? individual.getFitness()
+					: Double.NaN);
+			g.copyWords(chromosome, 0);
+			for (long w : chromosome)
+				buffer.putLong(w);
+		}
+
+		/**
+		 * Writes buffered records to the channel.
+		 *
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		/**
+		 * Flushes and closes the channel.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes)
+				flush();
+		}
+	}
+
+	/**
+	 * Reads individuals from a channel.
+	 *
+	 * @param <T>
+	 *            the type of individuals.
+	 */
+	public static final class Reader<T extends Individual> implements
+			Closeable {
+		private final ReadableByteChannel channel;
+		private final T template;
+		private final int words;
+		private final ByteBuffer buffer;
+		private final long[] chromosome;
+
+		/**
+		 * Creates a reader and reads the header.
+		 *
+		 * @param channel
+		 *            channel to read.
+		 * @param template
+		 *            individual to copy for each record. Its geno-type must
+		 *            have the schema of the stream.
+		 * @throws IOException
+		 *             if an I/O error occurs, or the header is invalid or does
+		 *             not match {@code template}.
+		 */
+		public Reader(ReadableByteChannel channel, T template)
+				throws IOException {
+			this.channel = channel;
+			this.template = template;
+			GenoType schema = template.genoType;
+			words = schema.getWordCount();
+			chromosome = new long[words];
+			buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE,
+					8 + 8 * words));
+			buffer.flip();
+
+			fill(12, false);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("invalid magic");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("unsupported version: " + version);
+			int length = buffer.getInt();
+			boolean match = length == schema.length;
+			for (int i = 0; i < length; i++) {
+				fill(4, false);
+				int nbit = buffer.getInt();
+				match &= i >= schema.length || nbit == schema.getLength(i);
+			}
+			if (!match)
+				throw new IOException("schema differs from the template");
+		}
+
+		/**
+		 * Reads an individual.
+		 *
+		 * @return new individual, or <code>null</code> at the end of the
+		 *         stream.
+		 * @throws EOFException
+		 *             if the stream ends within a record.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public T read() throws IOException {
+			if (!fill(8 + 8 * words, true))
+				return null;
+			double fitness = buffer.getDouble();
+			for (int w = 0; w < words; w++)
+				chromosome[w] = buffer.getLong();
+
+			T individual = makeClone(template);
+			individual.genoType.setLongArray(chromosome);
+			// the clone has no watcher; drop what it copied from the template
+			individual.onGenoTypeChanged();
+			if (!Double.isNaN(fitness))
+				individual.setFitness(fitness);
+			return individual;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		/**
+		 * Reads until {@code bytes} are buffered.
+		 *
+		 * @return <code>false</code> if the stream ended at a record boundary
+		 *         and {@code atBoundary} is <code>true</code>.
+		 */
+		private boolean fill(int bytes, boolean atBoundary) throws IOException {
+			if (buffer.remaining() >= bytes)
+				return true;
+			buffer.compact();
+			try {
+				while (buffer.position() < bytes) {
+					if (channel.read(buffer) < 0) {
+						if (atBoundary && buffer.position() == 0)
+							return false;
+						throw new EOFException();
+					}
+				}
+			} finally {
+				buffer.flip();
+			}
+			return true;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+}
@@ -0,0 +1,259 @@
+package net.tailriver.science.ga;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timers of the phases of a generation and counters of operations, filled by
+ * {@link GeneticAlgorithm} while it is set by
+ * {@link GeneticAlgorithm#setInstrumentation(Instrumentation)}. A genetic
+ * algorithm without instrumentation only tests a field for <code>null</code>
+ * in each phase.
+ *
+ * <p>
+ * Each phase can also be recorded as a JDK Flight Recorder event named
+ * {@code net.tailriver.science.ga.Phase}, if the classes of the
+ * <code>jfr</code> source folder, which need JDK 11 or later, are on the
+ * class path. Events are recorded only while a recording enables them, e.g.
+ * {@code -XX:StartFlightRecording}.
+ * </p>
+ *
+ * <p>
+ * {@link #snapshot()} may be called from any thread without locks. Values of
+ * a snapshot are read one by one, so they may be off by the operations in
+ * progress.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public final class Instrumentation {
+	/** Phases of a generation. */
+	public enum Phase {
+		/** {@link GeneticAlgorithm#cross(double, double)}. */
+		CROSS,
+		/** {@link GeneticAlgorithm#mutate(double)}. */
+		MUTATE,
+		/** {@link GeneticAlgorithmPlan#calculateFitness(java.util.List)}. */
+		EVALUATE,
+		/** sorting the population by fitness. */
+		SORT,
+		/** {@link GeneticAlgorithm#select()}, except sorting and evaluation. */
+		SELECT
+	}
+
+	/** Counted operations. */
+	public enum Counter {
+		/** distinct individuals passed to calculateFitness without fitness. */
+		EVALUATIONS,
+		/** individuals cloned. */
+		CLONES,
+		/** calls of applyCrossOver. */
+		CROSSOVERS,
+		/** bits flipped by mutation. */
+		FLIPPED_BITS
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final Counter[] COUNTERS = Counter.values();
+	private static final EventRecorder RECORDER = loadRecorder();
+
+	private final AtomicLongArray times = new AtomicLongArray(PHASES.length);
+	private final AtomicLongArray calls = new AtomicLongArray(PHASES.length);
+	private final AtomicLongArray counts = new AtomicLongArray(
+			COUNTERS.length);
+	private final EventRecorder recorder;
+
+	/**
+	 * Creates instrumentation recording Flight Recorder events if available.
+	 */
+	public Instrumentation() {
+		this(true);
+	}
+
+	/**
+	 *
+	 * @param flightRecorder
+	 *            <code>true</code> to record Flight Recorder events if
+	 *            available.
+	 */
+	public Instrumentation(boolean flightRecorder) {
+		recorder = flightRecorder ? RECORDER : null;
+	}
+
+	/**
+	 *
+	 * @return current values.
+	 */
+	public Snapshot snapshot() {
+		long[] t = new long[PHASES.length];
+		long[] n = new long[PHASES.length];
+		long[] c = new long[COUNTERS.length];
+		for (int i = 0; i < t.length; i++) {
+			t[i] = times.get(i);
+			n[i] = calls.get(i);
+		}
+		for (int i = 0; i < c.length; i++)
+			c[i] = counts.get(i);
+		return new Snapshot(System.nanoTime(), t, n, c);
+	}
+
+	Timer start(Phase phase) {
+		return new Timer(phase);
+	}
+
+	void add(Counter counter, long n) {
+		counts.addAndGet(counter.ordinal(), n);
+	}
+
+	long getCount(Counter counter) {
+		return counts.get(counter.ordinal());
+	}
+
+	private static EventRecorder loadRecorder() {
+		try {
+			// fails here without Flight Recorder, not at the first event
+			Class.forName("net.tailriver.science.ga.PhaseEvent");
+			return (EventRecorder) Class.forName(
+					"net.tailriver.science.ga.PhaseEvent$Recorder")
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records phases as events; implemented by
+	 * <code>jfr/net/tailriver/science/ga/PhaseEvent.java</code>.
+	 */
+	interface EventRecorder {
+		/**
+		 *
+		 * @return an event in progress, or <code>null</code> if not recorded.
+		 */
+		Object begin(Phase phase);
+
+		void commit(Object event, int individuals);
+	}
+
+	/**
+	 * Measurement of a phase in progress.
+	 */
+	final class Timer {
+		private final Phase phase;
+		private final Object event;
+		private final long start;
+
+		private Timer(Phase phase) {
+			this.phase = phase;
+			event = recorder != null ? recorder.begin(phase) : null;
+			start = System.nanoTime();
+		}
+
+		void add(Counter counter, long n) {
+			Instrumentation.this.add(counter, n);
+		}
+
+		/**
+		 *
+		 * @param individuals
+		 *            number of individuals processed in the phase.
+		 */
+		void stop(int individuals) {
+			long elapsed = System.nanoTime() - start;
+			times.addAndGet(phase.ordinal(), elapsed);
+			calls.incrementAndGet(phase.ordinal());
+			if (event != null)
+				recorder.commit(event, individuals);
+		}
+	}
+
+	/**
+	 * Immutable values of instrumentation at a time.
+	 */
+	public static final class Snapshot {
+		private final long nanoTime;
+		private final long[] times;
+		private final long[] calls;
+		private final long[] counts;
+
+		private Snapshot(long nanoTime, long[] times, long[] calls,
+				long[] counts) {
+			this.nanoTime = nanoTime;
+			this.times = times;
+			this.calls = calls;
+			this.counts = counts;
+		}
+
+		/**
+		 *
+		 * @return {@link System#nanoTime()} when taken, or elapsed time for
+		 *         a snapshot returned by {@link #since(Snapshot)}.
+		 */
+		public long getNanoTime() {
+			return nanoTime;
+		}
+
+		/**
+		 *
+		 * @param phase
+		 *            phase.
+		 * @return total time spent in {@code phase} in nanoseconds.
+		 */
+		public long getTime(Phase phase) {
+			return times[phase.ordinal()];
+		}
+
+		/**
+		 *
+		 * @param phase
+		 *            phase.
+		 * @return number of times {@code phase} ran.
+		 */
+		public long getCalls(Phase phase) {
+			return calls[phase.ordinal()];
+		}
+
+		/**
+		 *
+		 * @param counter
+		 *            counter.
+		 * @return value of {@code counter}.
+		 */
+		public long getCount(Counter counter) {
+			return counts[counter.ordinal()];
+		}
+
+		/**
+		 * Returns values accumulated since an earlier snapshot, e.g. in a
+		 * generation.
+		 *
+		 * @param earlier
+		 *            snapshot taken before this.
+		 * @return differences of values.
+		 */
+		public Snapshot since(Snapshot earlier) {
+			long[] t = new long[times.length];
+			long[] n = new long[calls.length];
+			long[] c = new long[counts.length];
+			for (int i = 0; i < t.length; i++) {
+				t[i] = times[i] - earlier.times[i];
+				n[i] = calls[i] - earlier.calls[i];
+			}
+			for (int i = 0; i < c.length; i++)
+				c[i] = counts[i] - earlier.counts[i];
+			return new Snapshot(nanoTime - earlier.nanoTime, t, n, c);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Phase p : PHASES) {
+				sb.append(p).append(' ').append(getTime(p) / 1000)
+						.append("us/").append(getCalls(p)).append(", ");
+			}
+			for (Counter c : COUNTERS)
+				sb.append(c).append(' ').append(getCount(c)).append(", ");
+			return sb.substring(0, sb.length() - 2);
+		}
+	}
+}
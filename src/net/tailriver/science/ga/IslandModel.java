@@ -0,0 +1,388 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Island model: several {@link GeneticAlgorithm}s evolve on their own threads
+ * and exchange migrants periodically.
+ *
+ * <p>
+ * Each island has its own {@link GeneticAlgorithmPlan} (and therefore its own
+ * random stream) created by a {@link PlanFactory}. Migrants are cloned and
+ * passed through a {@link MigrationQueue} of the destination island, so
+ * islands never wait for each other; when a queue is full, migrants are
+ * dropped. Incoming migrants are integrated at the next generation of the
+ * destination island.
+ * </p>
+ *
+ * <p>
+ * One generation of an island is {@link GeneticAlgorithm#cross(double, double)
+ * cross}, {@link GeneticAlgorithm#mutate(double) mutate}, emigration (every
+ * {@code interval} generations), integration of immigrants and
+ * {@link GeneticAlgorithm#select() select}. The island is evaluated once per
+ * generation, because immigrants keep their fitness.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class IslandModel<T extends Individual> {
+	/**
+	 * Creates a plan for each island.
+	 *
+	 * @param <T>
+	 *            the type of individuals.
+	 */
+	public interface PlanFactory<T extends Individual> {
+		/**
+		 *
+		 * @param island
+		 *            index of island.
+		 * @return newly created plan. It must not be shared between islands
+		 *         because it is called from the thread of the island.
+		 */
+		GeneticAlgorithmPlan<T> newPlan(int island);
+	}
+
+	/** Destination of migrants. */
+	public enum Topology {
+		/** to the next island. */
+		RING,
+		/** to four neighbours on a two-dimensional torus. */
+		TORUS,
+		/** to a randomly chosen island at each migration. */
+		RANDOM
+	}
+
+	/** Which individuals emigrate, or which residents are replaced. */
+	public enum Policy {
+		BEST, RANDOM, WORST
+	}
+
+	protected final List<GeneticAlgorithm<T>> islands;
+	private final List<MigrationQueue<T>> inboxes;
+
+	private Topology topology = Topology.RING;
+	private int interval = 10;
+	private int count = 1;
+	private Policy emigration = Policy.BEST;
+	private Policy replacement = Policy.WORST;
+
+	private volatile boolean stopped;
+
+	/**
+	 *
+	 * @param factory
+	 *            factory of plans.
+	 * @param islands
+	 *            number of islands.
+	 * @param size
+	 *            number of population of each island.
+	 * @throws NullPointerException
+	 *             if {@code factory} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code islands} is less than 1.
+	 */
+	public IslandModel(PlanFactory<T> factory, int islands, int size) {
+		if (islands < 1)
+			throw new IllegalArgumentException("islands < 1: " + islands);
+
+		this.islands = new ArrayList<>();
+		inboxes = new ArrayList<>();
+		for (int i = 0; i < islands; i++) {
+			this.islands.add(new GeneticAlgorithm<>(factory.newPlan(i), size));
+			inboxes.add(new MigrationQueue<T>(Math.max(16, size)));
+		}
+	}
+
+	/**
+	 * Configures migration.
+	 *
+	 * @param topology
+	 *            destination of migrants.
+	 * @param interval
+	 *            number of generations between migrations.
+	 * @param count
+	 *            number of migrants sent to each destination.
+	 * @param emigration
+	 *            which individuals emigrate.
+	 * @param replacement
+	 *            which residents are replaced by immigrants.
+	 * @throws NullPointerException
+	 *             if enum arguments are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code interval} is less than 1 or {@code count} is
+	 *             negative.
+	 */
+	public void setMigration(Topology topology, int interval, int count,
+			Policy emigration, Policy replacement) {
+		if (topology == null || emigration == null || replacement == null)
+			throw new NullPointerException();
+		if (interval < 1)
+			throw new IllegalArgumentException("interval < 1: " + interval);
+		if (count < 0)
+			throw new IllegalArgumentException("count < 0: " + count);
+
+		this.topology = topology;
+		this.interval = interval;
+		this.count = count;
+		this.emigration = emigration;
+		this.replacement = replacement;
+	}
+
+	/**
+	 *
+	 * @return number of islands.
+	 */
+	public int getIslandCount() {
+		return islands.size();
+	}
+
+	/**
+	 * Returns an island to configure (e.g.
+	 * {@link GeneticAlgorithm#setReverseOrder(boolean)}) or inspect it. Do not
+	 * touch it while {@link #run(int, double, double, double)} is running.
+	 *
+	 * @param i
+	 *            index of island.
+	 * @return the island.
+	 * @throws IndexOutOfBoundsException
+	 */
+	public GeneticAlgorithm<T> getIsland(int i) {
+		return islands.get(i);
+	}
+
+	/**
+	 * Offers a migrant to an island from outside of the model. It does not
+	 * block; the migrant is dropped when the inbox is full.
+	 *
+	 * @param island
+	 *            index of destination island.
+	 * @param migrant
+	 *            migrant with valid fitness. It is stored as it is.
+	 * @return <code>true</code> if accepted; <code>false</code> if dropped.
+	 * @throws IndexOutOfBoundsException
+	 * @throws NullPointerException
+	 *             if {@code migrant} is <code>null</code>.
+	 */
+	public boolean immigrate(int island, T migrant) {
+		return inboxes.get(island).offer(migrant);
+	}
+
+	/**
+	 * Evolves all islands in parallel and waits for them.
+	 *
+	 * @param generations
+	 *            number of generations.
+	 * @param crossoverRate
+	 *            see {@link GeneticAlgorithm#cross(double, double)}.
+	 * @param generationGap
+	 *            see {@link GeneticAlgorithm#cross(double, double)}.
+	 * @param mutationRate
+	 *            see {@link GeneticAlgorithm#mutate(double)}.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted. Islands are stopped
+	 *             before it is thrown.
+	 * @throws IllegalArgumentException
+	 *             if rates are NaN, less than 0 or greater than 1.
+	 * @throws RuntimeException
+	 *             if an island fails. Other islands are stopped.
+	 */
+	public void run(final int generations, final double crossoverRate,
+			final double generationGap, final double mutationRate)
+			throws InterruptedException {
+		GeneticAlgorithm.probabilityCheck("crossover rate", crossoverRate);
+		GeneticAlgorithm.probabilityCheck("generation gap", generationGap);
+		GeneticAlgorithm.probabilityCheck("mutation rate", mutationRate);
+
+		stopped = false;
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[islands.size()];
+		for (int i = 0; i < threads.length; i++) {
+			final int island = i;
+			threads[i] = new Thread("island-" + i) {
+				@Override
+				public void run() {
+					try {
+						for (int g = 1; g <= generations && !stopped; g++)
+							evolve(island, g, crossoverRate, generationGap,
+									mutationRate);
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+						stopped = true;
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		try {
+			for (Thread t : threads)
+				t.join();
+		} catch (InterruptedException e) {
+			stopped = true;
+			for (Thread t : threads)
+				t.join();
+			throw e;
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		if (t != null)
+			throw new IllegalStateException("island failed", t);
+	}
+
+	/**
+	 * Requests all islands to stop after their current generation.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Returns the best individual over all islands, according to the
+	 * comparator of the first island.
+	 *
+	 * @return copy of the best individual.
+	 * @see GeneticAlgorithm#getRankAt(int)
+	 */
+	public T getBest() {
+		Comparator<? super T> comparator = islands.get(0).getComparator();
+		T best = null;
+		for (GeneticAlgorithm<T> ga : islands) {
+			T top = ga.getRankAt(1);
+			if (best == null || compare(comparator, top, best) < 0)
+				best = top;
+		}
+		return best;
+	}
+
+	/**
+	 * Called from the thread of the island when migrants are sent. This
+	 * implementation does nothing; subclasses may forward them elsewhere.
+	 *
+	 * @param island
+	 *            index of source island.
+	 * @param migrants
+	 *            copies of emigrants. They may be kept by the callee.
+	 */
+	protected void onEmigrate(int island, List<T> migrants) {
+	}
+
+	private void evolve(int island, int generation, double crossoverRate,
+			double generationGap, double mutationRate) {
+		GeneticAlgorithm<T> ga = islands.get(island);
+		Random random = ga.plan.getRandom();
+		ga.cross(crossoverRate, generationGap);
+		ga.mutate(mutationRate);
+
+		// emigrants are taken before immigrants arrive, so the island is
+		// sorted once
+		if (count > 0 && generation % interval == 0) {
+			List<T> migrants = new ArrayList<>();
+			for (int rank : pickRanks(emigration, count, ga, random))
+				migrants.add(ga.getRankAt(rank));
+			for (int to : destinations(island, random)) {
+				for (T m : migrants)
+					inboxes.get(to).offer(makeClone(m));
+			}
+			onEmigrate(island, migrants);
+		}
+
+		List<T> immigrants = new ArrayList<>();
+		MigrationQueue<T> inbox = inboxes.get(island);
+		for (T m; immigrants.size() < ga.getSize()
+				&& (m = inbox.poll()) != null;)
+			immigrants.add(m);
+		ga.replaceAt(pickRanks(replacement, immigrants.size(), ga, random),
+				immigrants);
+
+		ga.select();
+	}
+
+	private int[] pickRanks(Policy policy, int n, GeneticAlgorithm<T> ga,
+			Random random) {
+		int size = ga.getSize();
+		n = Math.min(n, size);
+		int[] ranks = new int[n];
+		switch (policy) {
+		case BEST:
+			for (int k = 0; k < n; k++)
+				ranks[k] = 1 + k;
+			break;
+		case WORST:
+			for (int k = 0; k < n; k++)
+				ranks[k] = size - k;
+			break;
+		case RANDOM:
+			// partial Fisher-Yates shuffle to pick distinct ranks
+			int[] all = new int[size];
+			for (int k = 0; k < size; k++)
+				all[k] = 1 + k;
+			for (int k = 0; k < n; k++) {
+				int j = k + random.nextInt(size - k);
+				ranks[k] = all[j];
+				all[j] = all[k];
+			}
+			break;
+		}
+		return ranks;
+	}
+
+	private int[] destinations(int island, Random random) {
+		int n = islands.size();
+		if (n == 1)
+			return new int[0];
+
+		switch (topology) {
+		case RING:
+			return new int[] { (island + 1) % n };
+		case RANDOM:
+			int to = random.nextInt(n - 1);
+			return new int[] { to < island ? to : to + 1 };
+		case TORUS:
+		default:
+			int width = (int) Math.sqrt(n);
+			while (n % width != 0)
+				width--;
+			int height = n / width;
+			int x = island % width;
+			int y = island / width;
+			int[] candidates = new int[] {
+					y * width + (x + 1) % width,
+					y * width + (x + width - 1) % width,
+					(y + 1) % height * width + x,
+					(y + height - 1) % height * width + x };
+			int[] unique = new int[candidates.length];
+			int size = 0;
+			for (int c : candidates) {
+				boolean seen = c == island;
+				for (int k = 0; k < size; k++)
+					seen |= unique[k] == c;
+				if (!seen)
+					unique[size++] = c;
+			}
+			return Arrays.copyOf(unique, size);
+		}
+	}
+
+	private static <T extends Individual> int compare(
+			Comparator<? super T> comparator, T a, T b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+}
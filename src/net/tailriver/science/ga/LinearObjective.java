@@ -0,0 +1,156 @@
+package net.tailriver.science.ga;
+
+/**
+ * Linear objective over chromosome bits, evaluated by byte lookup tables.
+ *
+ * <p>
+ * For each weight vector it calculates
+ * <code>&Sigma;<sub>b</sub> weights[b] &times; bit<sub>b</sub></code>. Partial
+ * sums of every possible byte value are prepared for each byte of the
+ * chromosome, so a sum takes one table lookup per chromosome byte and no
+ * branch per bit. Tables of several weight vectors are interleaved, so all
+ * sums (e.g. weight and price of a knapsack) are obtained in a single pass.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public final class LinearObjective {
+	private static final int BYTES = Long.SIZE / Byte.SIZE;
+
+	private final int bitLength;
+	private final int vectors;
+	private final int wordCount;
+
+	/**
+	 * {@code table[((byteIndex << 8) | byteValue) * vectors + v]} is the
+	 * partial sum of weight vector {@code v}.
+	 */
+	private final int[] table;
+
+	/**
+	 *
+	 * @param weights
+	 *            weight vectors; {@code weights[v][b]} is the weight of
+	 *            chromosome bit {@code b} for vector {@code v}. All vectors
+	 *            must have the same length.
+	 * @throws NullPointerException
+	 *             if {@code weights} or its element is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if no vector is specified, vectors are empty, or their
+	 *             lengths differ.
+	 */
+	public LinearObjective(int[]... weights) {
+		if (weights.length == 0)
+			throw new IllegalArgumentException("no weight vector");
+		bitLength = weights[0].length;
+		if (bitLength == 0)
+			throw new IllegalArgumentException("weight vector is empty");
+		for (int[] w : weights) {
+			if (w.length != bitLength)
+				throw new IllegalArgumentException("length must be "
+						+ bitLength + ": " + w.length);
+		}
+
+		vectors = weights.length;
+		wordCount = (bitLength + Long.SIZE - 1) / Long.SIZE;
+		table = new int[wordCount * BYTES * 256 * vectors];
+		for (int v = 0; v < vectors; v++) {
+			int[] w = weights[v];
+			for (int byteIndex = 0; byteIndex * 8 < bitLength; byteIndex++) {
+				for (int value = 0; value < 256; value++) {
+					int sum = 0;
+					for (int k = 0; k < 8; k++) {
+						int b = byteIndex * 8 + k;
+						if (b < bitLength && (value >>> k & 1) != 0)
+							sum += w[b];
+					}
+					table[((byteIndex << 8) | value) * vectors + v] = sum;
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return number of chromosome bits covered by weight vectors.
+	 */
+	public int getBitLength() {
+		return bitLength;
+	}
+
+	/**
+	 *
+	 * @return number of weight vectors.
+	 */
+	public int getVectorCount() {
+		return vectors;
+	}
+
+	/**
+	 * Calculates the sum of a weight vector.
+	 *
+	 * @param words
+	 *            chromosome words (see {@link GenoType#toLongArray()}). Bits
+	 *            beyond {@link #getBitLength()} are ignored.
+	 * @param v
+	 *            index of weight vector.
+	 * @return weighted sum.
+	 * @throws NullPointerException
+	 *             if {@code words} is <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code v} is out of range.
+	 */
+	public int evaluate(long[] words, int v) {
+		if (v < 0 || v >= vectors)
+			throw new IndexOutOfBoundsException("vector: " + v);
+
+		int sum = 0;
+		for (int w = 0, n = Math.min(words.length, wordCount); w < n; w++) {
+			long word = words[w];
+			int base = w << 11;
+			for (int k = 0; k < BYTES; k++) {
+				int value = (int) (word >>> (k << 3)) & 0xFF;
+				sum += table[(base | k << 8 | value) * vectors + v];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Calculates sums of all weight vectors.
+	 *
+	 * @param words
+	 *            chromosome words (see {@link GenoType#toLongArray()}). Bits
+	 *            beyond {@link #getBitLength()} are ignored.
+	 * @param result
+	 *            array to store sums; {@code result[v]} is the sum of vector
+	 *            {@code v}. It is reused if its length is enough, otherwise
+	 *            (or if it is <code>null</code>) a new array is allocated.
+	 * @return the result.
+	 * @throws NullPointerException
+	 *             if {@code words} is <code>null</code>.
+	 */
+	public int[] evaluate(long[] words, int[] result) {
+		if (result == null || result.length < vectors)
+			result = new int[vectors];
+		for (int v = 0; v < vectors; v++)
+			result[v] = 0;
+
+		for (int w = 0, n = Math.min(words.length, wordCount); w < n; w++) {
+			long word = words[w];
+			int base = w << 11;
+			for (int k = 0; k < BYTES; k++) {
+				int value = (int) (word >>> (k << 3)) & 0xFF;
+				int offset = (base | k << 8 | value) * vectors;
+				for (int v = 0; v < vectors; v++)
+					result[v] += table[offset + v];
+			}
+		}
+		return result;
+	}
+}
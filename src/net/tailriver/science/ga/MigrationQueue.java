@@ -0,0 +1,121 @@
+package net.tailriver.science.ga;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue to pass migrants between islands.
+ *
+ * <p>
+ * It is a ring buffer in which each slot has a sequence number (D. Vyukov's
+ * bounded MPMC queue), so any number of threads may offer and poll
+ * concurrently without locks. {@link #offer(Object)} never blocks; it fails
+ * when the queue is full, and the caller simply drops the migrant.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <E>
+ *            the type of elements.
+ */
+public final class MigrationQueue<E> {
+	private final AtomicReferenceArray<E> buffer;
+	private final AtomicLongArray sequence;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 *
+	 * @param capacity
+	 *            minimum capacity. It is rounded up to a power of two.
+	 * @throws IllegalArgumentException
+	 *             if {@code capacity} is less than 1 or too large.
+	 */
+	public MigrationQueue(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity: " + capacity);
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		buffer = new AtomicReferenceArray<>(size);
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequence.set(i, i);
+		mask = size - 1;
+	}
+
+	/**
+	 *
+	 * @return capacity of the queue.
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Inserts an element if there is a free slot.
+	 *
+	 * @param e
+	 *            element to insert.
+	 * @return <code>true</code> if inserted; <code>false</code> if the queue
+	 *         is full.
+	 * @throws NullPointerException
+	 *             if {@code e} is <code>null</code>.
+	 */
+	public boolean offer(E e) {
+		if (e == null)
+			throw new NullPointerException();
+
+		long pos = tail.get();
+		for (;;) {
+			int index = (int) pos & mask;
+			long diff = sequence.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					buffer.lazySet(index, e);
+					sequence.lazySet(index, pos + 1);
+					return true;
+				}
+			} else if (diff < 0) {
+				return false;
+			}
+			pos = tail.get();
+		}
+	}
+
+	/**
+	 * Retrieves and removes the head of the queue.
+	 *
+	 * @return the head; <code>null</code> if the queue is empty.
+	 */
+	public E poll() {
+		long pos = head.get();
+		for (;;) {
+			int index = (int) pos & mask;
+			long diff = sequence.get(index) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					E e = buffer.get(index);
+					buffer.lazySet(index, null);
+					sequence.lazySet(index, pos + mask + 1);
+					return e;
+				}
+			} else if (diff < 0) {
+				return null;
+			}
+			pos = head.get();
+		}
+	}
+
+	/**
+	 *
+	 * @return approximate number of elements.
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+}
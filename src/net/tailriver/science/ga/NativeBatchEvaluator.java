@@ -0,0 +1,132 @@
+package net.tailriver.science.ga;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * Evaluates individuals by a fitness kernel in a native library, calling it
+ * once per batch.
+ *
+ * <p>
+ * The kernel is a C function of the following signature, looked up by name
+ * in a shared library.
+ * </p>
+ *
+ * <pre>
+ * void kernel(const uint64_t *words, int32_t count, int32_t wordsPerIndividual,
+ *         double *fitness);
+ * </pre>
+ *
+ * <p>
+ * {@code words} holds chromosome words of {@code count} individuals in a row,
+ * each of {@code wordsPerIndividual} words (see
+ * {@link GenoType#copyWords(long[], int)}). The kernel writes {@code count}
+ * fitness values to {@code fitness}. Both arrays live in direct buffers
+ * reused across calls, which the kernel reads and writes in place.
+ * </p>
+ *
+ * <p>
+ * The bridge library <code>libgabridge</code> (built by <code>make
+ * native</code>) must be on <code>java.library.path</code>. Instances are not
+ * thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class NativeBatchEvaluator<T extends Individual> {
+	static {
+		System.loadLibrary("gabridge");
+	}
+
+	private final long function;
+	private ByteBuffer words;
+	private ByteBuffer fitness;
+
+	/**
+	 *
+	 * @param library
+	 *            path of the shared library which has the kernel.
+	 * @param symbol
+	 *            name of the kernel function.
+	 * @throws NullPointerException
+	 *             if an argument is <code>null</code>.
+	 * @throws UnsatisfiedLinkError
+	 *             if the library or the function is not found.
+	 */
+	public NativeBatchEvaluator(String library, String symbol) {
+		if (library == null || symbol == null)
+			throw new NullPointerException();
+		function = lookup(library, symbol);
+	}
+
+	/**
+	 * Evaluates individuals and sets their fitness.
+	 *
+	 * @param population
+	 *            individuals to evaluate. Their geno-types must have the same
+	 *            bit length.
+	 * @throws IllegalArgumentException
+	 *             if bit lengths differ, the kernel returns NaN, or the words
+	 *             of the batch do not fit in a buffer (2 GiB).
+	 */
+	public void evaluate(List<? extends T> population) {
+		int count = population.size();
+		if (count == 0)
+			return;
+		int bitLength = population.get(0).genoType.getBitLength();
+		int wordsPerIndividual = population.get(0).genoType.getWordCount();
+
+		LongBuffer w = wordBuffer((long) count * wordsPerIndividual);
+		long[] a = new long[wordsPerIndividual];
+		for (T individual : population) {
+			if (individual.genoType.getBitLength() != bitLength)
+				throw new IllegalArgumentException("bit length must be "
+						+ bitLength + ": "
+						+ individual.genoType.getBitLength());
+			individual.genoType.copyWords(a, 0);
+			w.put(a);
+		}
+
+		DoubleBuffer f = fitnessBuffer(count);
+		invoke(function, words, count, wordsPerIndividual, fitness);
+		for (T individual : population)
+			individual.setFitness(f.get());
+	}
+
+	private LongBuffer wordBuffer(long n) {
+		if (words == null || words.capacity() < n * 8)
+			words = allocate(n * 8);
+		return words.asLongBuffer();
+	}
+
+	private DoubleBuffer fitnessBuffer(int n) {
+		if (fitness == null || fitness.capacity() < n * 8L)
+			fitness = allocate(n * 8L);
+		return fitness.asDoubleBuffer();
+	}
+
+	private static ByteBuffer allocate(long bytes) {
+		if (bytes > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("batch too large: " + bytes
+					+ " bytes");
+		// round up to reduce reallocation as batches grow, unless it
+		// overflows
+		int n = (int) bytes;
+		int capacity = Integer.highestOneBit(Math.max(n, 64) - 1) << 1;
+		if (capacity < n)
+			capacity = n;
+		return ByteBuffer.allocateDirect(capacity).order(
+				ByteOrder.nativeOrder());
+	}
+
+	private static native long lookup(String library, String symbol);
+
+	private static native void invoke(long function, ByteBuffer words,
+			int count, int wordsPerIndividual, ByteBuffer fitness);
+}
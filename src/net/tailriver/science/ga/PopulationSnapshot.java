@@ -0,0 +1,148 @@
+package net.tailriver.science.ga;
+
+import java.util.List;
+
+/**
+ * Immutable state of a population published by {@link GeneticAlgorithm} each
+ * time it is sorted, i.e. once per generation. It holds fitness of all ranks,
+ * fitness statistics and copies of the best individuals. Any thread may read
+ * it without synchronization.
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ * @see GeneticAlgorithm#getSnapshot()
+ */
+public final class PopulationSnapshot<T extends Individual> {
+	private final long epoch;
+	private final long nanoTime;
+	private final double[] fitness;
+	private final Individual[] best;
+	private final double mean;
+	private final double standardDeviation;
+
+	/**
+	 * Copies fitness of all individuals and the first {@code ranks}
+	 * individuals.
+	 *
+	 * @param epoch
+	 *            number of snapshots published before.
+	 * @param sorted
+	 *            evaluated and sorted population.
+	 * @param ranks
+	 *            number of individuals to copy.
+	 */
+	PopulationSnapshot(long epoch, List<? extends T> sorted, int ranks) {
+		this.epoch = epoch;
+		nanoTime = System.nanoTime();
+		int size = sorted.size();
+		fitness = new double[size];
+		best = new Individual[Math.min(ranks, size)];
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			fitness[i] = sorted.get(i).getFitness();
+			sum += fitness[i];
+		}
+		for (int i = 0; i < best.length; i++)
+			best[i] = sorted.get(i).clone();
+
+		mean = sum / size;
+		double squares = 0;
+		for (double f : fitness)
+			squares += (f - mean) * (f - mean);
+		standardDeviation = Math.sqrt(squares / size);
+	}
+
+	/**
+	 * Returns the epoch of the snapshot, which starts from 0 and increases by
+	 * one each time the genetic algorithm publishes a snapshot. A reader can
+	 * tell a new snapshot by comparing epochs.
+	 *
+	 * @return epoch of the snapshot.
+	 */
+	public long getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 *
+	 * @return {@link System#nanoTime()} when published.
+	 */
+	public long getNanoTime() {
+		return nanoTime;
+	}
+
+	/**
+	 *
+	 * @return number of population.
+	 */
+	public int getSize() {
+		return fitness.length;
+	}
+
+	/**
+	 *
+	 * @return number of individuals copied, from rank 1.
+	 */
+	public int getIndividualCount() {
+		return best.length;
+	}
+
+	/**
+	 *
+	 * @param rank
+	 *            BE CAREFUL. It starts from <em>ONE</em>.
+	 * @return copy of the individual at {@code rank}.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if {@code rank} is less than 1 or greater than
+	 *             {@link #getIndividualCount()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getRankAt(int rank) {
+		return (T) best[rank - 1].clone();
+	}
+
+	/**
+	 *
+	 * @param rank
+	 *            BE CAREFUL. It starts from <em>ONE</em>.
+	 * @return fitness of the individual at {@code rank}.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if {@code rank} is less than 1 or greater than
+	 *             {@link #getSize()}.
+	 */
+	public double getFitnessAt(int rank) {
+		return fitness[rank - 1];
+	}
+
+	/**
+	 *
+	 * @return fitness at rank 1.
+	 */
+	public double getBestFitness() {
+		return fitness[0];
+	}
+
+	/**
+	 *
+	 * @return mean fitness of the population.
+	 */
+	public double getMeanFitness() {
+		return mean;
+	}
+
+	/**
+	 *
+	 * @return standard deviation of fitness of the population.
+	 */
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	@Override
+	public String toString() {
+		return "epoch=" + epoch + ", best=" + getBestFitness() + ", mean="
+				+ mean + ", sd=" + standardDeviation;
+	}
+}
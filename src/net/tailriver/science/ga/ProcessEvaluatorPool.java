@@ -0,0 +1,413 @@
+package net.tailriver.science.ga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of long-lived worker processes which calculate fitness.
+ *
+ * <p>
+ * Individuals are sent to workers in batches through their standard input,
+ * and fitness values are read from their standard output. All values are
+ * big-endian, as {@link DataOutputStream} writes them.
+ * </p>
+ *
+ * <pre>
+ * request:  int count, int words, long[count * words] geno-types
+ * response: int count, double[count] fitness values
+ * </pre>
+ *
+ * <p>
+ * Each geno-type is {@link GenoType#copyWords(long[], int)}, which is
+ * {@link GenoType#getWordCount()} words long. A worker
+ * answers requests in order, and should exit at the end of its input.
+ * </p>
+ *
+ * <p>
+ * Up to {@code depth} batches are written to a worker ahead of its responses,
+ * so that it always has the next batch queued. When a worker dies, it is
+ * restarted and its outstanding batches are sent again; a batch is given up
+ * after it has been outstanding at the head of a dying worker several times.
+ * With {@link #setTimeout(long, TimeUnit)}, a worker which does not respond
+ * for that long while it has outstanding batches is killed and treated in the
+ * same way.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class ProcessEvaluatorPool<T extends Individual> implements Closeable {
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long POLL_MILLIS = 100;
+
+	private final ProcessBuilder builder;
+	private final int batchSize;
+	private final int depth;
+	private final BlockingDeque<Batch> queue = new LinkedBlockingDeque<>();
+	private final List<Worker> workers = new ArrayList<>();
+	private final AtomicInteger restarts = new AtomicInteger();
+	private volatile long timeoutNanos;
+	private volatile boolean closed;
+
+	/**
+	 *
+	 * @param builder
+	 *            builder of worker processes. It is copied, and later changes
+	 *            do not affect the pool. If its standard error is a pipe, it
+	 *            is redirected to that of this process.
+	 * @param workers
+	 *            number of worker processes.
+	 * @param batchSize
+	 *            maximum number of individuals in a batch.
+	 * @param depth
+	 *            maximum number of batches outstanding on a worker.
+	 * @throws NullPointerException
+	 *             if {@code builder} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if any of numbers is less than 1.
+	 */
+	public ProcessEvaluatorPool(ProcessBuilder builder, int workers,
+			int batchSize, int depth) {
+		if (builder == null)
+			throw new NullPointerException();
+		if (workers < 1)
+			throw new IllegalArgumentException("workers < 1: " + workers);
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize < 1: " + batchSize);
+		if (depth < 1)
+			throw new IllegalArgumentException("depth < 1: " + depth);
+		this.builder = copy(builder);
+		if (builder.redirectError() == Redirect.PIPE)
+			this.builder.redirectError(Redirect.INHERIT);
+
+		this.batchSize = batchSize;
+		this.depth = depth;
+		for (int i = 0; i < workers; i++) {
+			Worker w = new Worker();
+			w.setName("evaluator-process-" + i);
+			w.setDaemon(true);
+			this.workers.add(w);
+			w.start();
+		}
+	}
+
+	private static ProcessBuilder copy(ProcessBuilder builder) {
+		ProcessBuilder copy = new ProcessBuilder(new ArrayList<>(
+				builder.command()));
+		copy.directory(builder.directory());
+		copy.environment().clear();
+		copy.environment().putAll(builder.environment());
+		copy.redirectInput(builder.redirectInput());
+		copy.redirectOutput(builder.redirectOutput());
+		copy.redirectError(builder.redirectError());
+		copy.redirectErrorStream(builder.redirectErrorStream());
+		return copy;
+	}
+
+	/**
+	 * Sets the time a worker may take to answer its oldest outstanding batch.
+	 *
+	 * @param timeout
+	 *            maximum time without response; 0 means no timeout.
+	 * @param unit
+	 *            unit of {@code timeout}.
+	 * @throws NullPointerException
+	 *             if {@code unit} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code timeout} is negative.
+	 */
+	public void setTimeout(long timeout, TimeUnit unit) {
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout < 0: " + timeout);
+		timeoutNanos = unit.toNanos(timeout);
+	}
+
+	/**
+	 * Evaluates individuals and sets their fitness.
+	 *
+	 * @param population
+	 *            individuals to evaluate. Their geno-types must have the same
+	 *            bit length.
+	 * @throws IllegalArgumentException
+	 *             if bit lengths differ, a batch is larger than 2 GB, or a
+	 *             worker returns NaN.
+	 * @throws IllegalStateException
+	 *             if this pool is closed, a batch cannot be evaluated (the
+	 *             cause is the last error), or the calling thread is
+	 *             interrupted (its interrupt status is kept).
+	 */
+	public void evaluate(List<? extends T> population) {
+		if (closed)
+			throw new IllegalStateException("closed");
+
+		List<Batch> batches = new ArrayList<>();
+		for (int from = 0; from < population.size(); from += batchSize) {
+			int to = Math.min(from + batchSize, population.size());
+			batches.add(new Batch(population.subList(from, to)));
+		}
+		queue.addAll(batches);
+
+		boolean done = false;
+		try {
+			for (Batch b : batches) {
+				while (!b.latch.await(POLL_MILLIS, TimeUnit.MILLISECONDS))
+					killHungWorkers();
+				if (b.error != null)
+					throw new IllegalStateException("evaluation failed",
+							b.error);
+				for (int i = 0; i < b.individuals.size(); i++)
+					b.individuals.get(i).setFitness(b.result[i]);
+			}
+			done = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} finally {
+			// nobody reads the rest; do not let them delay the next call
+			if (!done) {
+				for (Batch b : batches)
+					b.cancelled = true;
+				queue.removeAll(batches);
+			}
+		}
+	}
+
+	/**
+	 * Kills workers which do not respond within the timeout. Their batches
+	 * are sent again by {@link Worker}, as if they died by themselves.
+	 */
+	private void killHungWorkers() {
+		long timeout = timeoutNanos;
+		if (timeout == 0)
+			return;
+		long now = System.nanoTime();
+		for (Worker w : workers) {
+			Incarnation c = w.current;
+			if (c != null && !c.dead && !c.pending.isEmpty()
+					&& now - c.progress > timeout)
+				c.die(new IOException("no response in "
+						+ TimeUnit.NANOSECONDS.toMillis(timeout) + " ms"));
+		}
+	}
+
+	/**
+	 *
+	 * @return number of worker processes restarted after they died.
+	 */
+	public int getRestarts() {
+		return restarts.get();
+	}
+
+	/**
+	 * Stops all workers. Batches not evaluated yet fail.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (Worker w : workers)
+			w.interrupt();
+		for (Worker w : workers) {
+			try {
+				w.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		for (Batch b; (b = queue.poll()) != null;)
+			b.fail(new IOException("closed"));
+	}
+
+	/** Individuals sent to a worker at once, with the encoded request. */
+	private static final class Batch {
+		final List<? extends Individual> individuals;
+		final byte[] request;
+		final CountDownLatch latch = new CountDownLatch(1);
+		int attempts;
+		double[] result;
+		Throwable error;
+		/** whether the caller no longer waits for this. */
+		volatile boolean cancelled;
+
+		Batch(List<? extends Individual> individuals) {
+			this.individuals = individuals;
+			int n = individuals.size();
+			int bitLength = n == 0 ? 0 : individuals.get(0).genoType
+					.getBitLength();
+			int w = n == 0 ? 0 : individuals.get(0).genoType.getWordCount();
+			long bytes = 8 + 8L * n * w;
+			if (bytes > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("batch too large: " + n
+						+ " individuals of " + w + " words");
+			ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+			buffer.putInt(n).putInt(w);
+			long[] words = new long[w];
+			for (Individual i : individuals) {
+				if (i.genoType.getBitLength() != bitLength)
+					throw new IllegalArgumentException("bit length must be "
+							+ bitLength + ": " + i.genoType.getBitLength());
+				i.genoType.copyWords(words, 0);
+				for (long v : words)
+					buffer.putLong(v);
+			}
+			request = buffer.array();
+		}
+
+		void complete(double[] result) {
+			this.result = result;
+			latch.countDown();
+		}
+
+		void fail(Throwable error) {
+			this.error = error;
+			latch.countDown();
+		}
+	}
+
+	/** A running worker process and its outstanding batches. */
+	private final class Incarnation extends Thread {
+		final Process process;
+		final DataOutputStream out;
+		final DataInputStream in;
+		final BlockingQueue<Batch> pending = new ArrayBlockingQueue<>(depth);
+		volatile boolean dead;
+		volatile IOException cause;
+		/** when the oldest outstanding batch started to wait for response. */
+		volatile long progress = System.nanoTime();
+
+		Incarnation(Process process) {
+			this.process = process;
+			out = new DataOutputStream(new BufferedOutputStream(
+					process.getOutputStream()));
+			in = new DataInputStream(new BufferedInputStream(
+					process.getInputStream()));
+			setName(Thread.currentThread().getName() + "-reader");
+			setDaemon(true);
+		}
+
+		/** Reads responses. */
+		@Override
+		public void run() {
+			try {
+				for (;;) {
+					int n = in.readInt();
+					Batch b = pending.peek();
+					if (b == null || n != b.individuals.size())
+						throw new IOException("unexpected response of " + n
+								+ " values");
+					double[] result = new double[n];
+					for (int i = 0; i < n; i++)
+						result[i] = in.readDouble();
+					pending.poll();
+					progress = System.nanoTime();
+					b.complete(result);
+				}
+			} catch (IOException e) {
+				die(e);
+			}
+		}
+
+		void die(IOException e) {
+			if (cause == null)
+				cause = e;
+			dead = true;
+			process.destroy();
+		}
+	}
+
+	/** Feeds batches to a worker process, restarting it when it dies. */
+	private final class Worker extends Thread {
+		private volatile Incarnation current;
+
+		@Override
+		public void run() {
+			try {
+				while (!closed) {
+					if (current != null && current.dead) {
+						bury(current);
+						current = null;
+						restarts.incrementAndGet();
+					}
+					Batch b = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (b == null || b.cancelled)
+						continue;
+					if (current == null) {
+						try {
+							current = new Incarnation(builder.start());
+							current.start();
+						} catch (IOException e) {
+							b.fail(e);
+							continue;
+						}
+					}
+					send(current, b);
+				}
+			} catch (InterruptedException e) {
+				// closed
+			} finally {
+				if (current != null) {
+					try {
+						current.out.close();
+					} catch (IOException e) {
+						// already dead
+					}
+					current.die(new IOException("closed"));
+					for (Batch b : current.pending)
+						b.fail(current.cause);
+				}
+			}
+		}
+
+		private void send(Incarnation w, Batch b) throws InterruptedException {
+			if (w.pending.isEmpty())
+				w.progress = System.nanoTime();
+			while (!w.pending.offer(b, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (w.dead || closed) {
+					queue.addFirst(b);
+					return;
+				}
+			}
+			try {
+				w.out.write(b.request);
+				w.out.flush();
+			} catch (IOException e) {
+				w.die(e);
+			}
+		}
+
+		/**
+		 * Sends outstanding batches of a dead worker again. Only the oldest
+		 * one is suspected of having killed it.
+		 */
+		private void bury(Incarnation w) throws InterruptedException {
+			w.join();
+			List<Batch> orphans = new ArrayList<>(w.pending);
+			for (int i = orphans.size() - 1; i >= 0; i--) {
+				Batch b = orphans.get(i);
+				if (b.cancelled)
+					continue;
+				if (i == 0 && ++b.attempts >= MAX_ATTEMPTS)
+					b.fail(w.cause);
+				else
+					queue.addFirst(b);
+			}
+		}
+	}
+}
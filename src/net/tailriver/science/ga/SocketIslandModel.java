@@ -0,0 +1,388 @@
+package net.tailriver.science.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Island model which also exchanges migrants with other processes over TCP.
+ *
+ * <p>
+ * Local islands migrate between each other as {@link IslandModel} does. In
+ * addition, every batch of emigrants is encoded into one frame and sent to all
+ * peers; frames received from peers are distributed to local islands in
+ * round-robin order. All sockets are non-blocking and handled by a single I/O
+ * thread, so island threads never wait for the network.
+ * </p>
+ *
+ * <p>
+ * Each peer has a bounded outbox. When a peer is slow or unreachable, its
+ * outbox fills up and further frames for it are dropped (see
+ * {@link #getDroppedFrames()}); connections are retried periodically. All
+ * processes must use the same plan (same chromosome schema).
+ * </p>
+ *
+ * <h3>Frame format</h3> Big-endian: <tt>int length</tt> (of the rest),
+ * <tt>int magic</tt>, <tt>int count</tt>, <tt>int words</tt>, then
+ * <tt>count</tt> times (<tt>double fitness</tt>, <tt>long[words]</tt>
+ * chromosome words).
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class SocketIslandModel<T extends Individual> extends IslandModel<T>
+		implements Closeable {
+	private static final int MAGIC = 0x47414d31;
+	private static final int MAX_FRAME = 1 << 26;
+	private static final int OUTBOX_FRAMES = 64;
+	private static final long RETRY_NANOS = 1000000000L;
+	private static final long SELECT_MILLIS = 100;
+
+	private final T template;
+	private final int wordCount;
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final List<Peer> peers = new ArrayList<>();
+	private final AtomicLong sentFrames = new AtomicLong();
+	private final AtomicLong receivedFrames = new AtomicLong();
+	private final AtomicLong droppedFrames = new AtomicLong();
+
+	private Thread io;
+	private volatile boolean closed;
+	private int nextIsland;
+
+	/**
+	 *
+	 * @param factory
+	 *            factory of plans.
+	 * @param islands
+	 *            number of local islands.
+	 * @param size
+	 *            number of population of each island.
+	 * @param local
+	 *            address to accept migrants from peers.
+	 * @param peers
+	 *            addresses of peers to send migrants to.
+	 * @throws IOException
+	 *             if the local address cannot be bound.
+	 * @see IslandModel#IslandModel(IslandModel.PlanFactory, int, int)
+	 */
+	public SocketIslandModel(PlanFactory<T> factory, int islands, int size,
+			InetSocketAddress local, List<InetSocketAddress> peers)
+			throws IOException {
+		super(factory, islands, size);
+		T first = this.islands.get(0).population[0];
+		template = makeClone(first);
+		template.setGenoType(new GenoType(first.genoType));
+		wordCount = template.genoType.getWordCount();
+
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.configureBlocking(false);
+		server.bind(local);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		for (InetSocketAddress address : peers)
+			this.peers.add(new Peer(address));
+	}
+
+	/**
+	 * Starts the I/O thread if it is not started yet. It is called from
+	 * {@link #run(int, double, double, double)}, but calling it earlier lets
+	 * the process accept migrants while it is still being set up.
+	 */
+	public synchronized void start() {
+		if (io != null)
+			return;
+		io = new Thread("island-io") {
+			@Override
+			public void run() {
+				loop();
+			}
+		};
+		io.setDaemon(true);
+		io.start();
+	}
+
+	@Override
+	public void run(int generations, double crossoverRate,
+			double generationGap, double mutationRate)
+			throws InterruptedException {
+		start();
+		super.run(generations, crossoverRate, generationGap, mutationRate);
+	}
+
+	/**
+	 * Stops the I/O thread and closes all sockets. Frames not sent yet are
+	 * discarded.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		selector.wakeup();
+		Thread t;
+		synchronized (this) {
+			t = io;
+		}
+		if (t != null) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (SelectionKey key : selector.keys())
+			key.channel().close();
+		selector.close();
+	}
+
+	/**
+	 *
+	 * @return address accepting migrants from peers.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) server.getLocalAddress();
+	}
+
+	/** @return number of frames written to peers. */
+	public long getSentFrames() {
+		return sentFrames.get();
+	}
+
+	/** @return number of frames received from peers. */
+	public long getReceivedFrames() {
+		return receivedFrames.get();
+	}
+
+	/** @return number of frames dropped because a peer was too slow. */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
+	@Override
+	protected void onEmigrate(int island, List<T> migrants) {
+		if (peers.isEmpty() || migrants.isEmpty())
+			return;
+
+		int bytes = 12 + migrants.size() * (8 + 8 * wordCount);
+		ByteBuffer frame = ByteBuffer.allocate(4 + bytes);
+		frame.putInt(bytes).putInt(MAGIC).putInt(migrants.size())
+				.putInt(wordCount);
+		long[] words = new long[wordCount];
+		for (T m : migrants) {
+			frame.putDouble(m.getFitness());
+			m.genoType.copyWords(words, 0);
+			for (long w : words)
+				frame.putLong(w);
+		}
+		frame.flip();
+
+		for (Peer p : peers) {
+			if (!p.outbox.offer(frame.duplicate()))
+				droppedFrames.incrementAndGet();
+		}
+		selector.wakeup();
+	}
+
+	private void loop() {
+		while (!closed) {
+			long now = System.nanoTime();
+			for (Peer p : peers)
+				p.service(now, selector);
+			try {
+				selector.select(SELECT_MILLIS);
+			} catch (IOException e) {
+				break;
+			}
+
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				try {
+					handle(key);
+				} catch (IOException | RuntimeException e) {
+					key.cancel();
+					closeQuietly(key.channel());
+					if (key.attachment() instanceof Peer)
+						((Peer) key.attachment()).reset();
+				}
+			}
+		}
+	}
+
+	private void handle(SelectionKey key) throws IOException {
+		if (!key.isValid())
+			return;
+		if (key.isAcceptable()) {
+			SocketChannel channel = server.accept();
+			if (channel != null) {
+				channel.configureBlocking(false);
+				channel.register(selector, SelectionKey.OP_READ,
+						ByteBuffer.allocate(1 << 16));
+			}
+			return;
+		}
+		if (key.attachment() instanceof Peer) {
+			Peer p = (Peer) key.attachment();
+			if (key.isConnectable() && p.channel.finishConnect())
+				key.interestOps(0);
+			if (key.isValid() && key.isWritable())
+				p.flush(sentFrames);
+			return;
+		}
+		if (key.isReadable())
+			read(key);
+	}
+
+	private void read(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		ByteBuffer buffer = (ByteBuffer) key.attachment();
+		if (channel.read(buffer) < 0)
+			throw new IOException("closed by peer");
+
+		buffer.flip();
+		while (buffer.remaining() >= 4) {
+			int length = buffer.getInt(buffer.position());
+			if (length < 12 || length > MAX_FRAME)
+				throw new IOException("invalid frame length: " + length);
+			if (buffer.remaining() < 4 + length) {
+				if (buffer.capacity() < 4 + length) {
+					ByteBuffer larger = ByteBuffer.allocate(4 + length);
+					larger.put(buffer);
+					larger.flip();
+					key.attach(larger);
+					buffer = larger;
+				}
+				break;
+			}
+			buffer.getInt();
+			ByteBuffer frame = buffer.slice();
+			frame.limit(length);
+			buffer.position(buffer.position() + length);
+			decode(frame);
+		}
+		buffer.compact();
+	}
+
+	/**
+	 * @param frame
+	 *            one frame without the length; its limit is the end of the
+	 *            frame.
+	 * @throws IOException
+	 *             if the frame is invalid. Nothing is immigrated then.
+	 */
+	private void decode(ByteBuffer frame) throws IOException {
+		if (frame.getInt() != MAGIC)
+			throw new IOException("invalid frame magic");
+		int count = frame.getInt();
+		int words = frame.getInt();
+		if (words != wordCount || count < 0)
+			throw new IOException("incompatible frame: " + count + " x "
+					+ words + " words");
+		if (frame.remaining() != count * (8 + 8L * words))
+			throw new IOException("frame length mismatch: " + count + " x "
+					+ words + " words in " + frame.remaining() + " bytes");
+
+		long[] chromosome = new long[words];
+		for (int k = 0; k < count; k++) {
+			double fitness = frame.getDouble();
+			for (int w = 0; w < words; w++)
+				chromosome[w] = frame.getLong();
+
+			T m = makeClone(template);
+			m.genoType.setLongArray(chromosome);
+			if (!Double.isNaN(fitness))
+				m.setFitness(fitness);
+			immigrate(nextIsland, m);
+			nextIsland = (nextIsland + 1) % getIslandCount();
+		}
+		receivedFrames.incrementAndGet();
+	}
+
+	private static void closeQuietly(Closeable c) {
+		try {
+			c.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+
+	/**
+	 * Outgoing connection to a peer. Touched only by the I/O thread (except
+	 * its outbox).
+	 */
+	private static final class Peer {
+		final InetSocketAddress address;
+		final MigrationQueue<ByteBuffer> outbox = new MigrationQueue<>(
+				OUTBOX_FRAMES);
+		SocketChannel channel;
+		SelectionKey key;
+		ByteBuffer pending;
+		long lastAttempt;
+
+		Peer(InetSocketAddress address) {
+			this.address = address;
+			lastAttempt = System.nanoTime() - RETRY_NANOS;
+		}
+
+		void service(long now, Selector selector) {
+			if (channel == null) {
+				if (now - lastAttempt < RETRY_NANOS)
+					return;
+				lastAttempt = now;
+				try {
+					channel = SocketChannel.open();
+					channel.configureBlocking(false);
+					channel.connect(address);
+					key = channel.register(selector,
+							SelectionKey.OP_CONNECT, this);
+				} catch (IOException e) {
+					closeQuietly(channel);
+					reset();
+				}
+				return;
+			}
+			if (!key.isValid() || !channel.isConnected())
+				return;
+			if (pending == null)
+				pending = outbox.poll();
+			key.interestOps(pending != null ? SelectionKey.OP_WRITE : 0);
+		}
+
+		void flush(AtomicLong sentFrames) throws IOException {
+			while (pending != null) {
+				channel.write(pending);
+				if (pending.hasRemaining())
+					return;
+				sentFrames.incrementAndGet();
+				pending = outbox.poll();
+			}
+			key.interestOps(0);
+		}
+
+		void reset() {
+			channel = null;
+			key = null;
+			// a partially written frame cannot be resumed on a new connection
+			pending = null;
+		}
+	}
+}
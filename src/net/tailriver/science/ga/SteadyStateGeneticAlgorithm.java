@@ -0,0 +1,290 @@
+package net.tailriver.science.ga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Steady-state genetic algorithm.
+ *
+ * <p>
+ * Instead of replacing a whole generation, each {@link #step(double, double)}
+ * breeds two offspring and integrates them into the population one by one.
+ * Ranking is kept in two indexed heaps (best first and worst first), which
+ * are updated in O(log n) per replacement, so the population is never sorted.
+ * This is suitable for very expensive fitness functions, where evaluations
+ * should be spent one at a time.
+ * </p>
+ *
+ * <p>
+ * Order of individuals is determined as {@link GeneticAlgorithm} does: the
+ * first one in the order is the best.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @param <T>
+ *            the type of individuals.
+ */
+public class SteadyStateGeneticAlgorithm<T extends Individual> {
+	/** Which resident is replaced by an offspring. */
+	public enum Replacement {
+		/** the worst individual of the population. */
+		WORST,
+		/** the loser of a tournament among randomly chosen individuals. */
+		TOURNAMENT
+	}
+
+	protected final GeneticAlgorithmPlan<T> plan;
+	protected final T[] population;
+	private Comparator<? super T> comparator;
+	private Replacement replacement = Replacement.WORST;
+	private int tournamentSize = 2;
+
+	private IndexedHeap<T> best;
+	private IndexedHeap<T> worst;
+	private long evaluations;
+
+	public SteadyStateGeneticAlgorithm(GeneticAlgorithmPlan<T> plan, int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("size < 1: " + size);
+
+		this.plan = plan;
+		population = makePopulationArray(size);
+		for (int i = 0; i < size; i++) {
+			T individual = plan.inflateIndividual();
+			individual.activateWatcher();
+			population[i] = individual;
+		}
+	}
+
+	/**
+	 * @see GeneticAlgorithm#setComparator(Comparator)
+	 */
+	public void setComparator(Comparator<? super T> comparator) {
+		this.comparator = comparator;
+		best = null;
+		worst = null;
+	}
+
+	/**
+	 * @see GeneticAlgorithm#setReverseOrder(boolean)
+	 */
+	public void setReverseOrder(boolean reverseOrder) {
+		setComparator(reverseOrder ? Collections.reverseOrder() : null);
+	}
+
+	/**
+	 *
+	 * @param replacement
+	 *            replacement strategy.
+	 * @param tournamentSize
+	 *            number of candidates for {@link Replacement#TOURNAMENT}.
+	 * @throws NullPointerException
+	 *             if {@code replacement} is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if {@code tournamentSize} is less than 1.
+	 */
+	public void setReplacement(Replacement replacement, int tournamentSize) {
+		if (replacement == null)
+			throw new NullPointerException();
+		if (tournamentSize < 1)
+			throw new IllegalArgumentException("tournamentSize < 1: "
+					+ tournamentSize);
+		this.replacement = replacement;
+		this.tournamentSize = tournamentSize;
+	}
+
+	/**
+	 * Breeds two offspring, evaluates and integrates them.
+	 *
+	 * @param crossoverRate
+	 *            probability of crossover.
+	 * @param mutationRate
+	 *            see {@link Individual#mutate(Random, double)}.
+	 * @throws IllegalArgumentException
+	 *             if arguments are NaN, less than 0 or greater than 1.
+	 * @throws IllegalStateException
+	 *             if fitness of offspring is still invalid after
+	 *             {@link GeneticAlgorithmPlan#calculateFitness(List)} called.
+	 */
+	public void step(double crossoverRate, double mutationRate) {
+		List<T> offspring = breed(crossoverRate, mutationRate);
+		List<T> invalid = new ArrayList<>();
+		for (T child : offspring) {
+			if (!child.hasFitness())
+				invalid.add(child);
+		}
+		evaluate(invalid);
+		for (T child : offspring)
+			integrate(child);
+	}
+
+	/**
+	 * Breeds two offspring from parents chosen by binary tournament. They are
+	 * not evaluated nor integrated yet.
+	 *
+	 * @param crossoverRate
+	 *            probability of crossover.
+	 * @param mutationRate
+	 *            see {@link Individual#mutate(Random, double)}.
+	 * @return list of two offspring. Their fitness is invalid if their
+	 *         geno-type differs from the parent.
+	 * @throws IllegalArgumentException
+	 *             if arguments are NaN, less than 0 or greater than 1.
+	 * @see #integrate(Individual)
+	 */
+	public List<T> breed(double crossoverRate, double mutationRate) {
+		GeneticAlgorithm.probabilityCheck("crossover rate", crossoverRate);
+		GeneticAlgorithm.probabilityCheck("mutation rate", mutationRate);
+		initialize();
+
+		Random random = plan.getRandom();
+		T x = makeClone(population[tournament(random, 2, true)]);
+		T y = makeClone(population[tournament(random, 2, true)]);
+		x.activateWatcher();
+		y.activateWatcher();
+		if (random.nextDouble() < crossoverRate)
+			plan.applyCrossOver(x, y);
+		x.mutate(random, mutationRate);
+		y.mutate(random, mutationRate);
+		return Arrays.asList(x, y);
+	}
+
+	/**
+	 * Integrates an evaluated offspring. It replaces the resident chosen by
+	 * the replacement strategy, unless the offspring is worse than it.
+	 *
+	 * @param child
+	 *            offspring with valid fitness. It is stored as it is.
+	 * @return <code>true</code> if the offspring entered the population.
+	 * @throws IllegalStateException
+	 *             if fitness of {@code child} is invalid.
+	 */
+	public boolean integrate(T child) {
+		if (!child.hasFitness())
+			throw new IllegalStateException("invalid fitness: " + child);
+		initialize();
+
+		int victim = replacement == Replacement.WORST ? worst.peek()
+				: tournament(plan.getRandom(), tournamentSize, false);
+		if (compare(child, population[victim]) > 0)
+			return false;
+
+		population[victim].deactivateWatcher();
+		population[victim] = child;
+		child.activateWatcher();
+		best.update(victim);
+		worst.update(victim);
+		return true;
+	}
+
+	/**
+	 *
+	 * @return copy of the best individual.
+	 */
+	public T getBest() {
+		initialize();
+		return makeClone(population[best.peek()]);
+	}
+
+	/**
+	 *
+	 * @return copy of the worst individual.
+	 */
+	public T getWorst() {
+		initialize();
+		return makeClone(population[worst.peek()]);
+	}
+
+	/**
+	 *
+	 * @return number of individuals passed to
+	 *         {@link GeneticAlgorithmPlan#calculateFitness(List)} so far.
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Counts evaluations done outside of this object.
+	 */
+	void addEvaluations(long n) {
+		evaluations += n;
+	}
+
+	/**
+	 *
+	 * @return number of population.
+	 */
+	public int getSize() {
+		return population.length;
+	}
+
+	/**
+	 * Evaluates the initial population and builds the heaps, if not yet.
+	 */
+	protected void initialize() {
+		if (best != null)
+			return;
+
+		List<T> invalid = new ArrayList<>();
+		for (T i : population) {
+			if (!i.hasFitness())
+				invalid.add(i);
+		}
+		evaluate(invalid);
+
+		Comparator<T> order = new Comparator<T>() {
+			@Override
+			public int compare(T a, T b) {
+				return SteadyStateGeneticAlgorithm.this.compare(a, b);
+			}
+		};
+		best = new IndexedHeap<>(population, order);
+		worst = new IndexedHeap<>(population, Collections.reverseOrder(order));
+	}
+
+	private void evaluate(List<T> individuals) {
+		if (individuals.isEmpty())
+			return;
+		plan.calculateFitness(individuals);
+		evaluations += individuals.size();
+		for (T i : individuals) {
+			if (!i.hasFitness())
+				throw new IllegalStateException("invalid fitness: " + i);
+		}
+	}
+
+	/**
+	 * @return index of the winner (or loser) among {@code k} random
+	 *         individuals.
+	 */
+	private int tournament(Random random, int k, boolean winner) {
+		int m = random.nextInt(population.length);
+		for (int j = 1; j < k; j++) {
+			int c = random.nextInt(population.length);
+			int r = compare(population[c], population[m]);
+			if (winner ? r < 0 : r > 0)
+				m = c;
+		}
+		return m;
+	}
+
+	private int compare(T a, T b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T makeClone(T o) {
+		return (T) o.clone();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Individual> T[] makePopulationArray(int size) {
+		return (T[]) new Individual[size];
+	}
+}
@@ -0,0 +1,220 @@
+package net.tailriver.science.ga;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.GeneticAlgorithmRunner.Progress;
+
+/**
+ * Common {@link StoppingCriterion}s. Composite criteria check their parts in
+ * the given order and stop checking as soon as the result is known, so put
+ * cheap ones first; {@link #entropyBelow(double)} counts all chromosome bits.
+ *
+ * @author tailriver
+ *
+ */
+public final class StoppingCriteria {
+	private StoppingCriteria() {
+	}
+
+	/**
+	 *
+	 * @param generations
+	 *            number of generations.
+	 * @return criterion met when {@code generations} have been evaluated.
+	 */
+	public static StoppingCriterion generations(final long generations) {
+		return new Criterion("generations " + generations) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getGeneration() >= generations;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param target
+	 *            target fitness.
+	 * @return criterion met when the best fitness is {@code target} or more.
+	 */
+	public static StoppingCriterion fitnessAtLeast(final double target) {
+		return new Criterion("fitness >= " + target) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getBest().getFitness() >= target;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param target
+	 *            target fitness.
+	 * @return criterion met when the best fitness is {@code target} or less.
+	 */
+	public static StoppingCriterion fitnessAtMost(final double target) {
+		return new Criterion("fitness <= " + target) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getBest().getFitness() <= target;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param generations
+	 *            number of generations.
+	 * @return criterion met when the best individual has not improved for
+	 *         {@code generations}.
+	 */
+	public static StoppingCriterion stagnation(final int generations) {
+		return new Criterion("stagnation " + generations) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getStagnation() >= generations;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param duration
+	 *            wall-clock budget.
+	 * @param unit
+	 *            unit of {@code duration}.
+	 * @return criterion met when the run has taken {@code duration}.
+	 */
+	public static StoppingCriterion wallClock(long duration, TimeUnit unit) {
+		final long nanos = unit.toNanos(duration);
+		return new Criterion("wall-clock " + duration + " " + unit) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getElapsedNanos() >= nanos;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param duration
+	 *            CPU time budget of the thread running the generation loop.
+	 * @param unit
+	 *            unit of {@code duration}.
+	 * @return criterion met when the thread has used {@code duration}; never
+	 *         met if the JVM does not measure CPU time of threads.
+	 */
+	public static StoppingCriterion cpuTime(long duration, TimeUnit unit) {
+		final long nanos = unit.toNanos(duration);
+		return new Criterion("cpu-time " + duration + " " + unit) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getCpuNanos() >= nanos;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param evaluations
+	 *            evaluation budget.
+	 * @return criterion met when {@code evaluations} individuals without
+	 *         fitness have been passed to
+	 *         {@link GeneticAlgorithmPlan#calculateFitness(java.util.List)}.
+	 *         Survivors which keep their fitness are not counted.
+	 * @see Instrumentation.Counter#EVALUATIONS
+	 */
+	public static StoppingCriterion evaluations(final long evaluations) {
+		return new Criterion("evaluations " + evaluations) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getEvaluations() >= evaluations;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param entropy
+	 *            threshold of {@link Diversity#getEntropy()} (0 to 1).
+	 * @return criterion met when the population has converged so that its
+	 *         entropy is less than {@code entropy}.
+	 */
+	public static StoppingCriterion entropyBelow(final double entropy) {
+		return new Criterion("entropy < " + entropy) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				return progress.getDiversity().getEntropy() < entropy;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param criteria
+	 *            criteria to compose.
+	 * @return criterion met when any of {@code criteria} is met.
+	 * @throws NullPointerException
+	 *             if {@code criteria} contains <code>null</code>.
+	 */
+	public static StoppingCriterion anyOf(StoppingCriterion... criteria) {
+		final StoppingCriterion[] parts = check(criteria);
+		return new Criterion("any of " + Arrays.toString(parts)) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				for (StoppingCriterion c : parts) {
+					if (c.isMet(progress))
+						return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param criteria
+	 *            criteria to compose.
+	 * @return criterion met when all of {@code criteria} are met.
+	 * @throws NullPointerException
+	 *             if {@code criteria} contains <code>null</code>.
+	 */
+	public static StoppingCriterion allOf(StoppingCriterion... criteria) {
+		final StoppingCriterion[] parts = check(criteria);
+		return new Criterion("all of " + Arrays.toString(parts)) {
+			@Override
+			public boolean isMet(Progress<?> progress) {
+				for (StoppingCriterion c : parts) {
+					if (!c.isMet(progress))
+						return false;
+				}
+				return true;
+			}
+		};
+	}
+
+	/** @return copy of {@code criteria} without <code>null</code>. */
+	static StoppingCriterion[] check(StoppingCriterion[] criteria) {
+		StoppingCriterion[] copy = criteria.clone();
+		for (StoppingCriterion c : copy) {
+			if (c == null)
+				throw new NullPointerException();
+		}
+		return copy;
+	}
+
+	/** criterion described by {@link #toString()}. */
+	private abstract static class Criterion implements StoppingCriterion {
+		private final String description;
+
+		Criterion(String description) {
+			this.description = description;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+}
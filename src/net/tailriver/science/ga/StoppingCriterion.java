@@ -0,0 +1,20 @@
+package net.tailriver.science.ga;
+
+/**
+ * Condition to stop a {@link GeneticAlgorithmRunner}, checked after each
+ * generation is evaluated. Criteria are stateless, so an instance may be
+ * shared by runs. See {@link StoppingCriteria} for common ones and for
+ * composing them.
+ *
+ * @author tailriver
+ *
+ */
+public interface StoppingCriterion {
+	/**
+	 *
+	 * @param progress
+	 *            progress of the run.
+	 * @return <code>true</code> to stop the run.
+	 */
+	boolean isMet(GeneticAlgorithmRunner.Progress<?> progress);
+}
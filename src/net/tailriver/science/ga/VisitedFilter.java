@@ -0,0 +1,179 @@
+package net.tailriver.science.ga;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Probabilistic set of visited geno-types: a blocked Bloom filter keyed by
+ * {@link GenoType#longHashCode()}. It never misses a geno-type once added, and
+ * reports a geno-type never added as visited with a small probability (false
+ * positive).
+ *
+ * <p>
+ * All bits of a key lie in one 512-bit block, i.e. one cache line, so a
+ * lookup touches memory once. The false positive rate is a little higher than
+ * that of a plain Bloom filter of the same size. With {@code b} bits per
+ * geno-type, about {@code 0.7 * b} hashes give the lowest rate; 10 bits and 7
+ * hashes give about 1%.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author tailriver
+ *
+ * @see GeneticAlgorithm#setVisitedFilter(VisitedFilter,
+ *      GeneticAlgorithm.RevisitPolicy, double)
+ */
+public class VisitedFilter {
+	private static final int BLOCK_BITS = 512;
+	private static final int BLOCK_WORDS = BLOCK_BITS / Long.SIZE;
+
+	private final AtomicLongArray bits;
+	private final int blocks;
+	private final int hashes;
+	private final AtomicLong bitCount = new AtomicLong();
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong revisits = new AtomicLong();
+	private final AtomicLong falsePositives = new AtomicLong();
+
+	/**
+	 *
+	 * @param bytes
+	 *            size of the filter, rounded down to a multiple of 64.
+	 * @param hashes
+	 *            number of bits set for each geno-type.
+	 * @throws IllegalArgumentException
+	 *             if {@code bytes} is less than 64 or greater than 16 GiB, or
+	 *             {@code hashes} is less than 1 or greater than 32.
+	 */
+	public VisitedFilter(long bytes, int hashes) {
+		if (bytes < BLOCK_BITS / 8 || bytes / 8 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("bytes out of range: " + bytes);
+		if (hashes < 1 || hashes > 32)
+			throw new IllegalArgumentException("hashes out of range: "
+					+ hashes);
+		blocks = (int) (bytes / (BLOCK_BITS / 8));
+		this.hashes = hashes;
+		bits = new AtomicLongArray(blocks * BLOCK_WORDS);
+	}
+
+	/**
+	 *
+	 * @param individual
+	 *            individual to test.
+	 * @return <code>true</code> if the geno-type may have been added;
+	 *         <code>false</code> if it has certainly not.
+	 */
+	public boolean mightContain(Individual individual) {
+		long h = mix(individual.genoType.longHashCode());
+		int base = block(h) * BLOCK_WORDS;
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 9) | 1;
+		for (int k = 0; k < hashes; k++) {
+			int bit = h1 + k * h2 & BLOCK_BITS - 1;
+			if ((bits.get(base + (bit >>> 6)) & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the geno-type of an individual.
+	 *
+	 * @param individual
+	 *            individual to add.
+	 * @return <code>true</code> if the geno-type was certainly not added
+	 *         before; <code>false</code> if it may have been (a revisit).
+	 */
+	public boolean add(Individual individual) {
+		long h = mix(individual.genoType.longHashCode());
+		int base = block(h) * BLOCK_WORDS;
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 9) | 1;
+		boolean added = false;
+		for (int k = 0; k < hashes; k++) {
+			int bit = h1 + k * h2 & BLOCK_BITS - 1;
+			int i = base + (bit >>> 6);
+			long mask = 1L << bit;
+			long word;
+			do {
+				word = bits.get(i);
+				if ((word & mask) != 0)
+					break;
+			} while (!bits.compareAndSet(i, word, word | mask));
+			if ((word & mask) == 0) {
+				bitCount.incrementAndGet();
+				added = true;
+			}
+		}
+		if (added)
+			count.incrementAndGet();
+		else
+			revisits.incrementAndGet();
+		return added;
+	}
+
+	/**
+	 *
+	 * @return number of geno-types added, not counting revisits.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 *
+	 * @return number of calls of {@link #add(Individual)} reporting a
+	 *         revisit.
+	 */
+	public long getRevisits() {
+		return revisits.get();
+	}
+
+	/**
+	 * Returns the number of revisits found to be false positives. It is
+	 * counted by {@link GeneticAlgorithm} when an exact cache misses a
+	 * revisit, so it is an upper bound if the cache drops entries.
+	 *
+	 * @return number of false positives observed.
+	 */
+	public long getFalsePositives() {
+		return falsePositives.get();
+	}
+
+	/**
+	 * Estimates the probability that a new geno-type is reported as a revisit
+	 * now, from the fraction of bits set.
+	 *
+	 * @return estimated false positive rate.
+	 */
+	public double getFalsePositiveRate() {
+		double load = (double) bitCount.get() / bits.length() / Long.SIZE;
+		return Math.pow(load, hashes);
+	}
+
+	/**
+	 *
+	 * @return size of the filter in bytes.
+	 */
+	public long getBytes() {
+		return (long) bits.length() * 8;
+	}
+
+	void falsePositive() {
+		falsePositives.incrementAndGet();
+	}
+
+	private int block(long h) {
+		return (int) ((h >>> 32) * blocks >>> 32);
+	}
+
+	/** SplitMix64 finalizer. */
+	private static long mix(long z) {
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+}
@@ -0,0 +1,158 @@
+package net.tailriver.science.ga.demo;
+
+/**
+ * Continuous benchmark functions with batch kernels.
+ *
+ * <p>
+ * Each kernel takes the decoded variables as columns ({@code x[d][k]} is the
+ * d-th variable of the k-th individual, see
+ * {@link net.tailriver.science.ga.BatchDecoder}) and writes one value per
+ * individual. Loops run over the individuals in the innermost position so that
+ * they are simple enough for the JIT compiler to vectorize.
+ * </p>
+ *
+ * @author tailriver
+ */
+public enum ContinuousFunction {
+	/**
+	 * <code>x sin(10&pi;x) + 2</code>, the one-dimensional sample used in
+	 * {@link Michalewicz}. Maximization problem.
+	 */
+	MICHALEWICZ(-1, 2) {
+		@Override
+		public double evaluate(double[] x) {
+			double sum = 0;
+			for (double v : x)
+				sum += v * Math.sin(10d * Math.PI * v) + 2;
+			return sum;
+		}
+
+		@Override
+		public void evaluate(double[][] x, int n, double[] result) {
+			clear(result, n);
+			for (double[] c : x) {
+				for (int k = 0; k < n; k++)
+					result[k] += c[k] * Math.sin(10d * Math.PI * c[k]) + 2;
+			}
+		}
+	},
+
+	/**
+	 * Rastrigin function. Minimization problem, minimum is 0 at the origin.
+	 */
+	RASTRIGIN(-5.12, 5.12) {
+		@Override
+		public double evaluate(double[] x) {
+			double sum = 10d * x.length;
+			for (double v : x)
+				sum += v * v - 10d * Math.cos(2d * Math.PI * v);
+			return sum;
+		}
+
+		@Override
+		public void evaluate(double[][] x, int n, double[] result) {
+			double base = 10d * x.length;
+			for (int k = 0; k < n; k++)
+				result[k] = base;
+			for (double[] c : x) {
+				for (int k = 0; k < n; k++)
+					result[k] += c[k] * c[k] - 10d
+							* Math.cos(2d * Math.PI * c[k]);
+			}
+		}
+	},
+
+	/**
+	 * Rosenbrock function. Minimization problem, minimum is 0 at (1, ..., 1).
+	 */
+	ROSENBROCK(-2.048, 2.048) {
+		@Override
+		public double evaluate(double[] x) {
+			double sum = 0;
+			for (int d = 0; d + 1 < x.length; d++) {
+				double a = x[d + 1] - x[d] * x[d];
+				double b = 1 - x[d];
+				sum += 100 * a * a + b * b;
+			}
+			return sum;
+		}
+
+		@Override
+		public void evaluate(double[][] x, int n, double[] result) {
+			clear(result, n);
+			for (int d = 0; d + 1 < x.length; d++) {
+				double[] c = x[d];
+				double[] e = x[d + 1];
+				for (int k = 0; k < n; k++) {
+					double a = e[k] - c[k] * c[k];
+					double b = 1 - c[k];
+					result[k] += 100 * a * a + b * b;
+				}
+			}
+		}
+	},
+
+	/**
+	 * Sphere function. Minimization problem, minimum is 0 at the origin.
+	 */
+	SPHERE(-5.12, 5.12) {
+		@Override
+		public double evaluate(double[] x) {
+			double sum = 0;
+			for (double v : x)
+				sum += v * v;
+			return sum;
+		}
+
+		@Override
+		public void evaluate(double[][] x, int n, double[] result) {
+			clear(result, n);
+			for (double[] c : x) {
+				for (int k = 0; k < n; k++)
+					result[k] += c[k] * c[k];
+			}
+		}
+	};
+
+	/** lower bound of each variable. */
+	public final double min;
+
+	/** upper bound of each variable. */
+	public final double max;
+
+	private ContinuousFunction(double min, double max) {
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Evaluates the function at a point (scalar path).
+	 *
+	 * @param x
+	 *            variables.
+	 * @return function value.
+	 */
+	public abstract double evaluate(double[] x);
+
+	/**
+	 * Evaluates the function for {@code n} points at once (batch path).
+	 *
+	 * @param x
+	 *            columns of variables; {@code x[d][k]} is the d-th variable of
+	 *            the k-th point. Each column must have at least {@code n}
+	 *            elements.
+	 * @param n
+	 *            number of points.
+	 * @param result
+	 *            array to store function values. It must have at least
+	 *            {@code n} elements.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if arrays are too short.
+	 */
+	public abstract void evaluate(double[][] x, int n, double[] result);
+
+	private static void clear(double[] result, int n) {
+		for (int k = 0; k < n; k++)
+			result[k] = 0;
+	}
+}
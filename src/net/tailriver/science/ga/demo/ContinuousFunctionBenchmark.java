@@ -0,0 +1,91 @@
+package net.tailriver.science.ga.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.BatchDecoder;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+
+/**
+ * Compares the scalar path (decode and evaluate individual by individual) with
+ * the batch path ({@link BatchDecoder} and column kernels of
+ * {@link ContinuousFunction}).
+ *
+ * <p>
+ * Usage: <tt>ContinuousFunctionBenchmark [population] [dimension] [rounds]</tt>
+ * </p>
+ *
+ * @author tailriver
+ */
+public class ContinuousFunctionBenchmark {
+	private static final int NBIT = 22;
+
+	public static void main(String... args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+		Random random = new Random(1);
+		List<Individual> population = new ArrayList<>();
+		for (int k = 0; k < size; k++) {
+			GenoType genoType = new GenoType.Creator().append(NBIT, dimension)
+					.inflate();
+			Individual individual = new Individual(genoType);
+			individual.randomize(random);
+			population.add(individual);
+		}
+
+		for (ContinuousFunction f : ContinuousFunction.values()) {
+			int d = f == ContinuousFunction.MICHALEWICZ ? 1 : dimension;
+			double checksum = 0;
+
+			// warm up both paths before measuring
+			for (int r = 0; r < rounds; r++) {
+				checksum += scalar(f, population, d);
+				checksum += batch(f, population, d);
+			}
+
+			long t0 = System.nanoTime();
+			for (int r = 0; r < rounds; r++)
+				checksum += scalar(f, population, d);
+			long t1 = System.nanoTime();
+			for (int r = 0; r < rounds; r++)
+				checksum += batch(f, population, d);
+			long t2 = System.nanoTime();
+
+			double n = (double) rounds * size;
+			System.out.printf("%-12s scalar %8.1f ns/ind  batch %8.1f ns/ind"
+					+ "  (checksum %g)%n", f, (t1 - t0) / n, (t2 - t1) / n,
+					checksum);
+		}
+	}
+
+	private static double scalar(ContinuousFunction f,
+			List<Individual> population, int dimension) {
+		double sum = 0;
+		double[] x = new double[dimension];
+		for (Individual individual : population) {
+			for (int d = 0; d < dimension; d++)
+				x[d] = individual.getGenoTypeDouble(d, f.min, f.max);
+			sum += f.evaluate(x);
+		}
+		return sum;
+	}
+
+	private static double batch(ContinuousFunction f,
+			List<Individual> population, int dimension) {
+		int size = population.size();
+		double[][] x = new double[dimension][];
+		for (int d = 0; d < dimension; d++)
+			x[d] = BatchDecoder.decode(population, d, f.min, f.max, null);
+		double[] result = new double[size];
+		f.evaluate(x, size, result);
+
+		double sum = 0;
+		for (int k = 0; k < size; k++)
+			sum += result[k];
+		return sum;
+	}
+}
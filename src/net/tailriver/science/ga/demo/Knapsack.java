@@ -6,8 +6,12 @@ import java.util.Random;
 
 import net.tailriver.science.ga.GeneticAlgorithm;
 import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.GeneticAlgorithmRunner;
+import net.tailriver.science.ga.GeneticAlgorithmRunner.Progress;
 import net.tailriver.science.ga.GenoType;
 import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.LinearObjective;
+import net.tailriver.science.ga.StoppingCriteria;
 
 /**
  * Solves knapsack problem.
@@ -15,7 +19,7 @@ import net.tailriver.science.ga.Individual;
  * When maximum weight is 200, the best result seems to be ...
  * <ul>
  * <li>Price total: 883</li>
- * <li>Hash code of chromosome: 4bbf6d9b</li>
+ * <li>Hash code of chromosome: 724603a7</li>
  * <li>Chromosome: <tt>11111100110110010111110111010010011011100100111110</tt></li>
  * </ul>
  * 
@@ -44,6 +48,9 @@ public class Knapsack implements GeneticAlgorithmPlan<Individual> {
 	/**/21, 2, 5, 28, 28, 4, 22, 36, 31, 2,
 	/**/7, 40, 14, 4, 28, 40, 33, 35, 21, 20 };
 	private static final int weightMax = 200;
+	private static final LinearObjective objective = new LinearObjective(
+			weights, prices);
+	private final int[] totals = new int[2];
 
 	@Override
 	public Individual inflateIndividual() {
@@ -61,14 +68,10 @@ public class Knapsack implements GeneticAlgorithmPlan<Individual> {
 	@Override
 	public void calculateFitness(List<Individual> population) {
 		for (Individual individual : population) {
-			int weightTotal = 0;
-			int priceTotal = 0;
-			for (int i = 0; i < weights.length; i++) {
-				if (individual.getGenoTypeBoolean(i)) {
-					weightTotal += weights[i];
-					priceTotal += prices[i];
-				}
-			}
+			// the only allocation; see GenoType.copyWords(long[], int)
+			objective.evaluate(individual.toGenoTypeLongArray(), totals);
+			int weightTotal = totals[0];
+			int priceTotal = totals[1];
 			double fitness = priceTotal;
 			if (weightTotal > weightMax) {
 				fitness -= 100 * (weightTotal - weightMax);
@@ -93,23 +96,26 @@ public class Knapsack implements GeneticAlgorithmPlan<Individual> {
 	}
 
 	public static void main(String... args) {
-		Individual best = null;
-		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(
+		final GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(
 				new Knapsack(), 50);
 		ga.setReverseOrder(true);
-		for (int generation = 0; generation < 10000; generation++) {
-			ga.cross(0.7, 0.9);
-			ga.mutate(0.01);
-
-			Individual generationTop = ga.getRankAt(1);
-			if (best == null || generationTop.isGreaterThan(best)) {
-				best = generationTop;
-				System.out.println(">> " + generation);
-				best.print();
-				System.out.println();
+		GeneticAlgorithmRunner<Individual> runner = new GeneticAlgorithmRunner<>(
+				ga, 0.7, 0.9, 0.01);
+		runner.setListener(new GeneticAlgorithmRunner.Listener<Individual>() {
+			@Override
+			public void onGeneration(Progress<Individual> progress) {
+				if (progress.isImproved()) {
+					System.out.println(">> " + (progress.getGeneration() - 1)
+							+ " (" + ga.getDiversity() + ")");
+					progress.getBest().print();
+					System.out.println();
+				}
 			}
-
-			ga.select();
-		}
+		});
+		Progress<Individual> result = runner.run(
+				StoppingCriteria.stagnation(2000),
+				StoppingCriteria.entropyBelow(0.01),
+				StoppingCriteria.generations(10000));
+		System.out.println(result);
 	}
 }
@@ -0,0 +1,76 @@
+package net.tailriver.science.ga.demo;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.IslandModel;
+import net.tailriver.science.ga.SocketIslandModel;
+
+/**
+ * Solves {@link Knapsack} problem with an island model, one island per
+ * processor.
+ *
+ * <p>
+ * Usage: <tt>KnapsackIslands [port [host:port ...]]</tt><br>
+ * Without arguments, islands migrate only within this process. With a port,
+ * migrants are also accepted on that port and sent to the listed peers. For
+ * example, three processes on one machine can form a ring:
+ * </p>
+ *
+ * <pre>
+ * KnapsackIslands 7001 localhost:7002 &amp;
+ * KnapsackIslands 7002 localhost:7003 &amp;
+ * KnapsackIslands 7003 localhost:7001
+ * </pre>
+ *
+ * @author tailriver
+ */
+public class KnapsackIslands {
+	public static void main(String... args) throws InterruptedException,
+			IOException {
+		int islands = Runtime.getRuntime().availableProcessors();
+		IslandModel.PlanFactory<Individual> factory = new IslandModel.PlanFactory<Individual>() {
+			@Override
+			public GeneticAlgorithmPlan<Individual> newPlan(int island) {
+				return new Knapsack();
+			}
+		};
+
+		IslandModel<Individual> model;
+		if (args.length == 0) {
+			model = new IslandModel<>(factory, islands, 50);
+		} else {
+			InetSocketAddress local = new InetSocketAddress(
+					Integer.parseInt(args[0]));
+			List<InetSocketAddress> peers = new ArrayList<>();
+			for (int i = 1; i < args.length; i++) {
+				int colon = args[i].lastIndexOf(':');
+				peers.add(new InetSocketAddress(args[i].substring(0, colon),
+						Integer.parseInt(args[i].substring(colon + 1))));
+			}
+			model = new SocketIslandModel<>(factory, islands, 50, local, peers);
+		}
+		for (int i = 0; i < islands; i++)
+			model.getIsland(i).setReverseOrder(true);
+		model.setMigration(IslandModel.Topology.RING, 20, 2,
+				IslandModel.Policy.BEST, IslandModel.Policy.WORST);
+
+		long start = System.nanoTime();
+		model.run(2000, 0.7, 0.9, 0.01);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(islands + " islands, " + elapsed / 1000000 + " ms");
+		if (model instanceof SocketIslandModel) {
+			SocketIslandModel<Individual> s = (SocketIslandModel<Individual>) model;
+			System.out.println("frames: sent " + s.getSentFrames()
+					+ ", received " + s.getReceivedFrames() + ", dropped "
+					+ s.getDroppedFrames());
+			s.close();
+		}
+		model.getBest().print();
+	}
+}
@@ -4,10 +4,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import net.tailriver.science.ga.BatchDecoder;
 import net.tailriver.science.ga.GeneticAlgorithm;
 import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.GeneticAlgorithmRunner;
+import net.tailriver.science.ga.GeneticAlgorithmRunner.Progress;
 import net.tailriver.science.ga.GenoType;
 import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.StoppingCriteria;
 
 /**
  * Solves Michalewicz sample.
@@ -48,11 +52,15 @@ public class Michalewicz implements GeneticAlgorithmPlan<Individual> {
 
 	@Override
 	public void calculateFitness(List<Individual> population) {
-		for (Individual individual : population) {
-			double x = individual.getGenoTypeDouble(0, -1, 2);
-			double fitness = x * Math.sin(10d * Math.PI * x) + 2;
-			individual.setPhenoType(0, x);
-			individual.setFitness(fitness);
+		int size = population.size();
+		double[] x = BatchDecoder.decode(population, 0, -1, 2, null);
+		double[] fitness = new double[size];
+		ContinuousFunction.MICHALEWICZ.evaluate(new double[][] { x }, size,
+				fitness);
+		for (int k = 0; k < size; k++) {
+			Individual individual = population.get(k);
+			individual.setPhenoType(0, x[k]);
+			individual.setFitness(fitness[k]);
 		}
 	}
 
@@ -72,20 +80,21 @@ public class Michalewicz implements GeneticAlgorithmPlan<Individual> {
 
 	public static void main(String... args) {
 		Michalewicz mi = new Michalewicz();
-		Individual best = null;
-		for (int generation = 0; generation < 10000; generation++) {
-			mi.ga.cross(0.25, 1);
-			mi.ga.mutate(0.1);
-
-			Individual generationTop = mi.ga.getRankAt(1);
-			if (generationTop.isGreaterThan(best)) {
-				best = generationTop;
-				System.out.println(">> " + generation);
-				best.print();
-				System.out.println();
+		GeneticAlgorithmRunner<Individual> runner = new GeneticAlgorithmRunner<>(
+				mi.ga, 0.25, 1, 0.1);
+		runner.setListener(new GeneticAlgorithmRunner.Listener<Individual>() {
+			@Override
+			public void onGeneration(Progress<Individual> progress) {
+				if (progress.isImproved()) {
+					System.out.println(">> " + (progress.getGeneration() - 1));
+					progress.getBest().print();
+					System.out.println();
+				}
 			}
-
-			mi.ga.select();
-		}
+		});
+		Progress<Individual> result = runner.run(
+				StoppingCriteria.stagnation(1000),
+				StoppingCriteria.generations(10000));
+		System.out.println(result);
 	}
 }
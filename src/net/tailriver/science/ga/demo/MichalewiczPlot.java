@@ -4,10 +4,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 
+import net.tailriver.science.ga.GeneticAlgorithmRunner;
+import net.tailriver.science.ga.GeneticAlgorithmRunner.Progress;
 import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.PopulationSnapshot;
+import net.tailriver.science.ga.StoppingCriteria;
 
 /**
- * Solves Michalewicz sample with gnuplot animation.
+ * Solves Michalewicz sample with gnuplot animation. A plotter thread reads
+ * published snapshots of the population, so it never touches the population
+ * itself; the evolution is only slowed down to make the animation visible.
  * 
  * @author tailriver
  */
@@ -16,51 +22,80 @@ public class MichalewiczPlot extends Michalewicz {
 	InputStream cin;
 	InputStream cerr;
 	PrintWriter cout;
-	Individual best;
-	int generation;
 
 	public static void main(String... args) {
-		MichalewiczPlot mi = new MichalewiczPlot();
-		for (mi.generation = 0; mi.generation < 1000; mi.generation++) {
-			mi.ga.cross(0.25, 1);
-			mi.ga.mutate(0.01);
+		final MichalewiczPlot mi = new MichalewiczPlot();
+		mi.ga.setSnapshotSize(mi.ga.getSize());
+		Thread plotter = new Thread("plotter") {
+			@Override
+			public void run() {
+				mi.plotSnapshots();
+			}
+		};
+		plotter.setDaemon(true);
+		plotter.start();
+
+		GeneticAlgorithmRunner<Individual> runner = new GeneticAlgorithmRunner<>(
+				mi.ga, 0.25, 1, 0.01);
+		runner.setListener(new GeneticAlgorithmRunner.Listener<Individual>() {
+			@Override
+			public void onGeneration(Progress<Individual> progress) {
+				if (progress.isImproved()) {
+					System.out.println(">> " + (progress.getGeneration() - 1));
+					progress.getBest().print();
+					System.out.println();
+				}
+				try {
+					Thread.sleep(progress.getGeneration() > 30 ? 100 : 500);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		runner.run(StoppingCriteria.generations(1000));
+		plotter.interrupt();
+		try {
+			plotter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-			Individual generationTop = mi.ga.getRankAt(1);
-			if (generationTop.isGreaterThan(mi.best)) {
-				mi.best = generationTop;
-				System.out.println(">> " + mi.generation);
-				mi.best.print();
-				System.out.println();
+	/**
+	 * Plots each new snapshot until interrupted.
+	 */
+	public void plotSnapshots() {
+		long epoch = -1;
+		while (!Thread.currentThread().isInterrupted()) {
+			PopulationSnapshot<Individual> s = ga.getSnapshot();
+			if (s != null && s.getEpoch() != epoch) {
+				epoch = s.getEpoch();
+				plot(s);
+			}
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				return;
 			}
-			mi.plot();
-			mi.ga.select();
 		}
 	}
 
-	public void plot() {
-		long sleep = 500;
-		if (generation > 30 && best != null && best.getFitness() > 3.6) {
+	public void plot(PopulationSnapshot<Individual> s) {
+		// a snapshot is published once per generation
+		long generation = s.getEpoch();
+		if (generation > 30 && s.getBestFitness() > 3.6) {
 			cout.println("set xrange [1.6:1.9]");
 			cout.println("set yrange [3:4]");
 		}
-		if (generation > 30) {
-			sleep = 100;
-		}
 		cout.println("set title 'generation #" + generation + "'");
 		cout.println("plot f(x) with line, '-' with point pt 5 ps 3");
-		for (int i = 1; i <= 50; i++) {
-			Individual one = ga.getRankAt(i);
+		for (int i = 1; i <= s.getIndividualCount(); i++) {
+			Individual one = s.getRankAt(i);
 			cout.println(one.getGenoTypeDouble(0, -1, 2) + " "
 					+ one.getFitness());
 		}
 		cout.println("e");
 		cout.flush();
-
-		try {
-			Thread.sleep(sleep);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
 	}
 
 	public MichalewiczPlot() {
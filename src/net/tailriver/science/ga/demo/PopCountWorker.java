@@ -0,0 +1,60 @@
+package net.tailriver.science.ga.demo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import net.tailriver.science.ga.ProcessEvaluatorPool;
+
+/**
+ * Trivial worker process for {@link ProcessEvaluatorPool}, whose fitness is
+ * the number of 1 bits.
+ *
+ * <p>
+ * Usage: <code>PopCountWorker [crashAfter [hang]]</code>. With
+ * {@code crashAfter}, it exits abnormally on receiving that many batches, to
+ * test restarts. With {@code hang}, it stops responding there instead, to
+ * test timeouts.
+ * </p>
+ *
+ * @author tailriver
+ *
+ */
+public class PopCountWorker {
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		int crashAfter = args.length > 0 ? Integer.parseInt(args[0]) : -1;
+		boolean hang = args.length > 1 && args[1].equals("hang");
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				System.out));
+
+		for (int batch = 0;; batch++) {
+			int n;
+			try {
+				n = in.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			int words = in.readInt();
+			if (batch == crashAfter) {
+				if (hang)
+					Thread.sleep(Long.MAX_VALUE);
+				System.exit(1);
+			}
+
+			out.writeInt(n);
+			for (int i = 0; i < n; i++) {
+				int ones = 0;
+				for (int j = 0; j < words; j++)
+					ones += Long.bitCount(in.readLong());
+				out.writeDouble(ones);
+			}
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package net.tailriver.science.ga.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.LinearObjective;
+
+/**
+ * Standard problems for end-to-end benchmarks. All of them are maximization
+ * problems (minimization problems are negated), and are solved with the same
+ * operators: two-point crossover, and tournament selection keeping the best
+ * individual.
+ *
+ * @author tailriver
+ * @see ThroughputBenchmark
+ */
+public enum ProblemSuite {
+	/** number of 1 bits. */
+	ONEMAX {
+		@Override
+		public Problem create(int bits, long seed) {
+			return new Problem(seed, 1, bits, bits) {
+				@Override
+				double fitness(Individual individual) {
+					int ones = 0;
+					for (long w : individual.toGenoTypeLongArray())
+						ones += Long.bitCount(w);
+					return ones;
+				}
+			};
+		}
+	},
+
+	/**
+	 * NK landscape with K = 4: mean of contributions of bits, each looked up
+	 * by the bit and 4 random other bits. The optimum is unknown.
+	 */
+	NK {
+		@Override
+		public Problem create(int bits, long seed) {
+			final int n = Math.max(bits, K + 1);
+			final int[][] links = new int[n][K + 1];
+			final double[][] table = new double[n][1 << K + 1];
+			Random random = new Random(seed ^ 0x4E4BL);
+			for (int i = 0; i < n; i++) {
+				links[i][0] = i;
+				for (int k = 1; k <= K; k++) {
+					int j;
+					do {
+						j = random.nextInt(n);
+					} while (contains(links[i], k, j));
+					links[i][k] = j;
+				}
+				for (int t = 0; t < table[i].length; t++)
+					table[i][t] = random.nextDouble();
+			}
+			return new Problem(seed, 1, n, Double.NaN) {
+				@Override
+				double fitness(Individual individual) {
+					long[] words = individual.toGenoTypeLongArray();
+					double sum = 0;
+					for (int i = 0; i < n; i++) {
+						int index = 0;
+						for (int j : links[i])
+							index = index << 1 | bit(words, j);
+						sum += table[i][index];
+					}
+					return sum / n;
+				}
+			};
+		}
+	},
+
+	/**
+	 * Concatenated deceptive traps of 5 bits. A block of {@code u} 1 bits
+	 * scores 5 if {@code u} is 5, or {@code 4 - u} otherwise.
+	 */
+	TRAP {
+		@Override
+		public Problem create(int bits, long seed) {
+			final int blocks = Math.max(1, bits / TRAP_ORDER);
+			return new Problem(seed, 1, blocks * TRAP_ORDER, blocks
+					* TRAP_ORDER) {
+				@Override
+				double fitness(Individual individual) {
+					long[] words = individual.toGenoTypeLongArray();
+					int sum = 0;
+					for (int b = 0; b < blocks; b++) {
+						int u = 0;
+						for (int j = b * TRAP_ORDER; j < (b + 1) * TRAP_ORDER; j++)
+							u += bit(words, j);
+						sum += u == TRAP_ORDER ? u : TRAP_ORDER - 1 - u;
+					}
+					return sum;
+				}
+			};
+		}
+	},
+
+	/**
+	 * Knapsack of random items (weight and price in 1-100) with capacity of
+	 * half the total weight, penalized like {@link Knapsack}. The optimum is
+	 * unknown.
+	 */
+	KNAPSACK {
+		@Override
+		public Problem create(int bits, long seed) {
+			int[] weights = new int[bits];
+			int[] prices = new int[bits];
+			Random random = new Random(seed ^ 0x4B50L);
+			int total = 0;
+			for (int i = 0; i < bits; i++) {
+				weights[i] = 1 + random.nextInt(100);
+				prices[i] = 1 + random.nextInt(100);
+				total += weights[i];
+			}
+			final int capacity = total / 2;
+			final LinearObjective objective = new LinearObjective(weights,
+					prices);
+			return new Problem(seed, 1, bits, Double.NaN) {
+				private final int[] totals = new int[2];
+
+				@Override
+				double fitness(Individual individual) {
+					// the only allocation; see GenoType.copyWords(long[], int)
+					objective.evaluate(individual.toGenoTypeLongArray(), totals);
+					double fitness = totals[1];
+					if (totals[0] > capacity)
+						fitness -= 100 * (totals[0] - capacity);
+					return fitness;
+				}
+			};
+		}
+	},
+
+	/**
+	 * {@link ContinuousFunction#MICHALEWICZ} of {@code bits / 22} variables.
+	 * The target is 3.85 per variable (the maximum is 3.8503).
+	 */
+	MICHALEWICZ {
+		@Override
+		public Problem create(int bits, long seed) {
+			int d = Math.max(1, bits / NBIT);
+			return continuous(ContinuousFunction.MICHALEWICZ, 1, seed, d,
+					3.85 * d);
+		}
+	},
+
+	/**
+	 * {@link ContinuousFunction#RASTRIGIN} of {@code bits / 22} variables,
+	 * negated. The target is -0.01 (the maximum is 0).
+	 */
+	RASTRIGIN {
+		@Override
+		public Problem create(int bits, long seed) {
+			int d = Math.max(1, bits / NBIT);
+			return continuous(ContinuousFunction.RASTRIGIN, -1, seed, d, -0.01);
+		}
+	};
+
+	private static final int K = 4;
+	private static final int TRAP_ORDER = 5;
+	private static final int NBIT = 22;
+
+	/**
+	 * Creates an instance of the problem.
+	 *
+	 * @param bits
+	 *            chromosome length. It is rounded down to a multiple of the
+	 *            block of the problem (5 for trap, 22 for continuous ones).
+	 * @param seed
+	 *            seed of the instance and of the random generator of the plan.
+	 * @return plan of the instance.
+	 */
+	public abstract Problem create(int bits, long seed);
+
+	/**
+	 * Plan of a problem instance.
+	 */
+	public abstract static class Problem implements
+			GeneticAlgorithmPlan<Individual> {
+		private final Random random;
+		private final int nbit;
+		private final int genes;
+		private final double target;
+
+		Problem(long seed, int nbit, int genes, double target) {
+			random = new Random(seed);
+			this.nbit = nbit;
+			this.genes = genes;
+			this.target = target;
+		}
+
+		/**
+		 *
+		 * @return fitness regarded as solved, or NaN if unknown.
+		 */
+		public double getTarget() {
+			return target;
+		}
+
+		/**
+		 *
+		 * @return chromosome length.
+		 */
+		public int getBitLength() {
+			return nbit * genes;
+		}
+
+		abstract double fitness(Individual individual);
+
+		@Override
+		public Individual inflateIndividual() {
+			GenoType genoType = new GenoType.Creator().append(nbit, genes)
+					.inflate();
+			Individual individual = new Individual(genoType);
+			individual.randomize(random);
+			return individual;
+		}
+
+		@Override
+		public Random getRandom() {
+			return random;
+		}
+
+		@Override
+		public void calculateFitness(List<Individual> population) {
+			for (Individual individual : population) {
+				if (!individual.hasFitness())
+					individual.setFitness(fitness(individual));
+			}
+		}
+
+		@Override
+		public void applyCrossOver(Individual x, Individual y) {
+			Individual.crossOverTwoPoint(x, y, random);
+		}
+
+		@Override
+		public List<Individual> applySelection(List<Individual> candidates) {
+			List<Individual> winner = new ArrayList<>();
+			winner.addAll(GeneticAlgorithm.selectElite(candidates, 1));
+			winner.addAll(GeneticAlgorithm.selectTournament(candidates,
+					random, candidates.size() - 1, 2));
+			return winner;
+		}
+	}
+
+	private static Problem continuous(final ContinuousFunction f,
+			final double sign, long seed, final int d, double target) {
+		return new Problem(seed, NBIT, d, target) {
+			private final double[] x = new double[d];
+
+			@Override
+			double fitness(Individual individual) {
+				for (int i = 0; i < d; i++)
+					x[i] = individual.getGenoTypeDouble(i, f.min, f.max);
+				return sign * f.evaluate(x);
+			}
+		};
+	}
+
+	private static boolean contains(int[] a, int n, int value) {
+		for (int i = 0; i < n; i++) {
+			if (a[i] == value)
+				return true;
+		}
+		return false;
+	}
+
+	/** @return bit of trimmed chromosome words. */
+	private static int bit(long[] words, int i) {
+		int w = i >>> 6;
+		return w < words.length ? (int) (words[w] >>> i & 1) : 0;
+	}
+}
@@ -0,0 +1,179 @@
+package net.tailriver.science.ga.demo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Instrumentation;
+import net.tailriver.science.ga.Instrumentation.Counter;
+import net.tailriver.science.ga.Instrumentation.Snapshot;
+import net.tailriver.science.ga.demo.ProblemSuite.Problem;
+
+/**
+ * Runs complete generation loops on {@link ProblemSuite} and reports
+ * throughput, one JSON object per line for each problem and population size:
+ *
+ * <pre>
+ * {"problem":"ONEMAX","bits":1000,"population":1000,"generations":100,
+ *  "seconds":1.23,"generationsPerSecond":81.3,"evaluationsPerSecond":65900,
+ *  "allocatedBytesPerSecond":1.2e9,"peakHeapBytes":123456789,
+ *  "bestFitness":987,"target":1000,"secondsToTarget":null,
+ *  "generationsToTarget":null}
+ * </pre>
+ *
+ * <p>
+ * A generation is cross (rate 0.8, gap 0.9), mutate (one bit per chromosome
+ * on average), evaluation and select; creating the initial population is not
+ * measured. Evaluations are individuals actually scored by the problem
+ * ({@link Counter#EVALUATIONS}); survivors keeping their fitness are not
+ * counted. Each run is preceded by warm-up generations of a separate
+ * population of the same problem, which are not measured. The allocation
+ * rate is that of the running thread, and the peak heap is the sum of the
+ * peaks of heap memory pools during the run; both are null where the JVM
+ * does not provide them. Large populations need a large heap, e.g.
+ * {@code -Xmx64g} for 10M individuals of 1000 bits.
+ * </p>
+ *
+ * <p>
+ * Usage:
+ * <tt>ThroughputBenchmark [problems] [populations] [generations] [bits]</tt>,
+ * e.g. <tt>ThroughputBenchmark ONEMAX,TRAP 50,1000,100000 200 1000</tt>.
+ * Defaults are all problems, 50,1000,10000, 100 generations and 1000 bits.
+ * </p>
+ *
+ * @author tailriver
+ */
+public class ThroughputBenchmark {
+	private static final long SEED = 1;
+	private static final int WARMUP_GENERATIONS = 20;
+
+	public static void main(String... args) {
+		List<ProblemSuite> problems = new ArrayList<>();
+		if (args.length > 0) {
+			for (String s : args[0].split(","))
+				problems.add(ProblemSuite.valueOf(s.toUpperCase(Locale.ROOT)));
+		} else {
+			for (ProblemSuite p : ProblemSuite.values())
+				problems.add(p);
+		}
+		String populations = args.length > 1 ? args[1] : "50,1000,10000";
+		int generations = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int bits = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+		for (ProblemSuite p : problems) {
+			for (String s : populations.split(",")) {
+				int size = Integer.parseInt(s);
+				warmUp(p, bits, Math.min(size, 1000));
+				System.out.println(run(p, bits, size, generations));
+			}
+		}
+	}
+
+	private static void warmUp(ProblemSuite p, int bits, int size) {
+		Problem problem = p.create(bits, SEED);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(problem, size);
+		ga.setReverseOrder(true);
+		for (int g = 0; g < WARMUP_GENERATIONS; g++)
+			step(ga, 1d / problem.getBitLength());
+	}
+
+	private static String run(ProblemSuite p, int bits, int size,
+			int generations) {
+		Problem problem = p.create(bits, SEED);
+		double mutationRate = 1d / problem.getBitLength();
+		double target = problem.getTarget();
+		Instrumentation instrumentation = new Instrumentation(false);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		List<MemoryPoolMXBean> heap = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+				heap.add(pool);
+			}
+		}
+
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(problem,
+				size);
+		ga.setReverseOrder(true);
+		ga.setInstrumentation(instrumentation);
+		long allocated0 = allocatedBytes(threads);
+		long start = System.nanoTime();
+		Snapshot s0 = instrumentation.snapshot();
+		double best = Double.NaN;
+		Double secondsToTarget = null;
+		Integer generationsToTarget = null;
+		for (int g = 0; g < generations; g++) {
+			best = step(ga, mutationRate);
+			if (generationsToTarget == null && best >= target) {
+				secondsToTarget = (System.nanoTime() - start) * 1e-9;
+				generationsToTarget = g + 1;
+			}
+		}
+		double seconds = (System.nanoTime() - start) * 1e-9;
+		long allocated1 = allocatedBytes(threads);
+		Snapshot s = instrumentation.snapshot().since(s0);
+
+		Long peak = null;
+		for (MemoryPoolMXBean pool : heap) {
+			if (pool.getPeakUsage() != null)
+				peak = (peak == null ? 0 : peak) + pool.getPeakUsage().getUsed();
+		}
+
+		StringBuilder sb = new StringBuilder("{");
+		field(sb, "problem", '"' + p.name() + '"');
+		field(sb, "bits", problem.getBitLength());
+		field(sb, "population", size);
+		field(sb, "generations", generations);
+		field(sb, "seconds", seconds);
+		field(sb, "generationsPerSecond", generations / seconds);
+		field(sb, "evaluationsPerSecond", s.getCount(Counter.EVALUATIONS)
+				/ seconds);
+		field(sb, "allocatedBytesPerSecond", allocated0 < 0 || allocated1 < 0
+				? null : (allocated1 - allocated0) / seconds);
+		field(sb, "peakHeapBytes", peak);
+		field(sb, "bestFitness", best);
+		field(sb, "target", Double.isNaN(target) ? null : target);
+		field(sb, "secondsToTarget", secondsToTarget);
+		field(sb, "generationsToTarget", generationsToTarget);
+		sb.setCharAt(sb.length() - 1, '}');
+		return sb.toString();
+	}
+
+	/** @return fitness of the best individual. */
+	private static double step(GeneticAlgorithm<Individual> ga,
+			double mutationRate) {
+		ga.cross(0.8, 0.9);
+		ga.mutate(mutationRate);
+		double best = ga.getRankAt(1).getFitness();
+		ga.select();
+		return best;
+	}
+
+	/** @return bytes allocated by this thread, or -1 if not supported. */
+	private static long allocatedBytes(ThreadMXBean threads) {
+		if (!(threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) threads;
+		if (!t.isThreadAllocatedMemorySupported()
+				|| !t.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void field(StringBuilder sb, String name, Object value) {
+		sb.append('"').append(name).append("\":");
+		if (value instanceof Double && ((Double) value).isNaN())
+			sb.append("null");
+		else if (value instanceof Double)
+			sb.append(String.format(Locale.ROOT, "%.6g", value));
+		else
+			sb.append(value);
+		sb.append(',');
+	}
+}
@@ -0,0 +1,76 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.tailriver.science.ga.AsynchronousEvolution;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.SteadyStateGeneticAlgorithm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsynchronousEvolutionTest {
+	ExecutorService executor;
+	SteadyStateGeneticAlgorithm<Individual> engine;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		// calculateFitness is called from workers
+		engine = new SteadyStateGeneticAlgorithm<>(new OneMax(40, 8812) {
+			@Override
+			public synchronized void calculateFitness(
+					List<Individual> population) {
+				super.calculateFitness(population);
+			}
+		}, 30);
+		engine.setReverseOrder(true);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRun() throws InterruptedException {
+		double first = engine.getBest().getFitness();
+		AsynchronousEvolution<Individual> evolution = new AsynchronousEvolution<>(
+				engine, executor, 8);
+		assertEquals(2000, evolution.run(2000, 0.9, 0.02));
+		assertTrue(engine.getBest().getFitness() >= first);
+		assertTrue(engine.getEvaluations() <= 30 + 2000);
+	}
+
+	@Test(timeout = 10000)
+	public void testNoVariation() throws InterruptedException {
+		engine.getBest();
+		AsynchronousEvolution<Individual> evolution = new AsynchronousEvolution<>(
+				engine, executor, 8);
+		// every offspring equals its parent, so nothing is dispatched
+		assertEquals(100, evolution.run(100, 0, 0));
+		assertEquals(30, engine.getEvaluations());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFailure() throws InterruptedException {
+		SteadyStateGeneticAlgorithm<Individual> failing = new SteadyStateGeneticAlgorithm<>(
+				new OneMax(40, 8812) {
+					@Override
+					public synchronized void calculateFitness(
+							List<Individual> population) {
+						if (evaluations >= 30)
+							throw new IllegalStateException("failed");
+						super.calculateFitness(population);
+					}
+				}, 30);
+		failing.getBest();
+		new AsynchronousEvolution<>(failing, executor, 8).run(100, 0.9, 0.02);
+	}
+}
@@ -0,0 +1,75 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.BitSlicedEvaluator;
+import net.tailriver.science.ga.BitSlicedPopulation;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitSlicedPopulationTest {
+	List<Individual> population;
+	Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(5092341);
+		population = new ArrayList<>();
+		for (int i = 0; i < 70; i++) {
+			GenoType g = new GenoType.Creator().append(1, 50).append(20)
+					.inflate();
+			Individual a = new Individual(g);
+			a.randomize(random);
+			population.add(a);
+		}
+	}
+
+	@Test
+	public void testTranspose() {
+		BitSlicedPopulation p = new BitSlicedPopulation(70);
+		assertEquals(64, p.load(population, 0));
+		for (int lane = 0; lane < 64; lane++) {
+			GenoType g = new GenoType.Creator().append(1, 50).append(20)
+					.inflate();
+			p.get(lane, g);
+			assertEquals(population.get(lane).toGenoTypeString(), g.toString());
+		}
+		assertEquals(6, p.load(population, 64));
+	}
+
+	@Test
+	public void testWeightedSum() {
+		int[] weights = new int[70];
+		for (int b = 0; b < weights.length; b++)
+			weights[b] = random.nextInt(1000);
+
+		BitSlicedPopulation p = new BitSlicedPopulation(70);
+		BitSlicedEvaluator e = new BitSlicedEvaluator(weights);
+		for (int from = 0; from < population.size(); from += 64) {
+			int n = p.load(population, from);
+			int[] sums = e.evaluate(p, null);
+			for (int j = 0; j < n; j++) {
+				long[] words = population.get(from + j).toGenoTypeLongArray();
+				int expected = 0;
+				for (int b = 0; b < weights.length; b++) {
+					if (b / 64 < words.length
+							&& (words[b / 64] & 1L << b) != 0)
+						expected += weights[b];
+				}
+				assertEquals(expected, sums[j]);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeWeight() {
+		new BitSlicedEvaluator(new int[] { 1, -1 });
+	}
+}
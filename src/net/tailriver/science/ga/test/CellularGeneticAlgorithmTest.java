@@ -0,0 +1,71 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.tailriver.science.ga.CellularGeneticAlgorithm;
+import net.tailriver.science.ga.CellularGeneticAlgorithm.Neighbourhood;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.Test;
+
+public class CellularGeneticAlgorithmTest {
+	private static final int WIDTH = 12;
+	private static final int HEIGHT = 10;
+
+	private static CellularGeneticAlgorithm<Individual> run(
+			Neighbourhood neighbourhood, int tiles, int generations) {
+		// crossover at a fixed point, so that it does not depend on the order
+		// in which tiles call the plan
+		OneMax plan = new OneMax(60, 5501) {
+			@Override
+			public void applyCrossOver(Individual x, Individual y) {
+				Individual.crossOverSinglePoint(x, y, new Random(nbit));
+			}
+		};
+		CellularGeneticAlgorithm<Individual> ga = new CellularGeneticAlgorithm<>(
+				plan, WIDTH, HEIGHT, neighbourhood, tiles);
+		ga.setReverseOrder(true);
+		for (int g = 0; g < generations; g++)
+			ga.step(0.8, 1 / 60d);
+		ga.shutdown();
+		return ga;
+	}
+
+	@Test
+	public void testTilesMatchSingleTile() {
+		for (Neighbourhood neighbourhood : Neighbourhood.values()) {
+			CellularGeneticAlgorithm<Individual> single = run(neighbourhood,
+					1, 20);
+			for (int tiles : new int[] { 3, 4, HEIGHT }) {
+				CellularGeneticAlgorithm<Individual> tiled = run(
+						neighbourhood, tiles, 20);
+				for (int y = 0; y < HEIGHT; y++) {
+					for (int x = 0; x < WIDTH; x++) {
+						Individual expected = single.getCell(x, y);
+						Individual actual = tiled.getCell(x, y);
+						assertEquals(expected.toGenoTypeString(),
+								actual.toGenoTypeString());
+						assertEquals(expected.getFitness(),
+								actual.getFitness(), 0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testImproves() {
+		double first = run(Neighbourhood.MOORE, 4, 1).getBest().getFitness();
+		double last = run(Neighbourhood.MOORE, 4, 50).getBest().getFitness();
+		assertTrue(last > first);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTiles() {
+		new CellularGeneticAlgorithm<>(new OneMax(60, 1), WIDTH, HEIGHT,
+				Neighbourhood.MOORE, 0);
+	}
+}
@@ -0,0 +1,100 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.tailriver.science.ga.Checkpoint;
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckpointTest {
+	Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("checkpoint", ".bin");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private static void evolve(GeneticAlgorithm<Individual> ga, int generations) {
+		for (int g = 0; g < generations; g++) {
+			ga.cross(0.8, 0.9);
+			ga.mutate(0.01);
+			ga.select();
+		}
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		GeneticAlgorithm<Individual> original = new GeneticAlgorithm<>(
+				new OneMax(90, 1), 40);
+		original.setReverseOrder(true);
+		evolve(original, 10);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			checkpoint.save(original, 10);
+			evolve(original, 15);
+		}
+
+		GeneticAlgorithm<Individual> restored = new GeneticAlgorithm<>(
+				new OneMax(90, 2), 40);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			assertEquals(10, checkpoint.restore(restored));
+		}
+		evolve(restored, 15);
+
+		assertEquals(original.toString(), restored.toString());
+		for (int r = 1; r <= 40; r++)
+			assertEquals(original.getRankAt(r).toGenoTypeString(), restored
+					.getRankAt(r).toGenoTypeString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testMismatch() throws Exception {
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(
+				new OneMax(90, 1), 40);
+		ga.getRankAt(1);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			checkpoint.save(ga, 0);
+			checkpoint.restore(new GeneticAlgorithm<>(new OneMax(90, 1), 41));
+		}
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		GeneticAlgorithm<Individual> original = new GeneticAlgorithm<>(
+				new OneMax(90, 1), 40);
+		original.getRankAt(1);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			checkpoint.save(original, 0);
+		}
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 8);
+		}
+
+		GeneticAlgorithm<Individual> restored = new GeneticAlgorithm<>(
+				new OneMax(90, 2), 40);
+		String best = restored.getRankAt(1).toGenoTypeString();
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			checkpoint.restore(restored);
+			fail();
+		} catch (IOException e) {
+			assertEquals("truncated checkpoint", e.getMessage());
+		}
+		assertEquals(best, restored.getRankAt(1).toGenoTypeString());
+	}
+}
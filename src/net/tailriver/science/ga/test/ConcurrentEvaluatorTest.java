@@ -0,0 +1,197 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.tailriver.science.ga.ConcurrentEvaluator;
+import net.tailriver.science.ga.ConcurrentEvaluator.TimeoutPolicy;
+import net.tailriver.science.ga.CostModel;
+import net.tailriver.science.ga.FitnessFunction;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentEvaluatorTest {
+	ConcurrentEvaluator<Individual> evaluator;
+	List<Individual> population;
+	Set<Individual> slow;
+
+	@Before
+	public void setUp() {
+		evaluator = new ConcurrentEvaluator<>(4);
+		OneMax plan = new OneMax(40, 6620);
+		population = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			population.add(plan.inflateIndividual());
+		slow = Collections
+				.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
+		slow.add(population.get(3));
+	}
+
+	@After
+	public void tearDown() {
+		evaluator.shutdown();
+	}
+
+	/** @return number of 1 bits. */
+	private static double ones(Individual individual) {
+		int ones = 0;
+		for (long w : individual.toGenoTypeLongArray())
+			ones += Long.bitCount(w);
+		return ones;
+	}
+
+	/**
+	 * Slow individuals sleep for a while; it does not respond to interruption
+	 * if {@code stubborn}.
+	 */
+	private FitnessFunction<Individual> sleeping(final boolean stubborn,
+			final CountDownLatch finished) {
+		return new FitnessFunction<Individual>() {
+			@Override
+			public double calculateFitness(Individual individual)
+					throws InterruptedException {
+				if (slow.contains(individual)) {
+					try {
+						long end = System.nanoTime() + 500000000L;
+						for (long left; (left = end - System.nanoTime()) > 0;) {
+							try {
+								TimeUnit.NANOSECONDS.sleep(left);
+							} catch (InterruptedException e) {
+								if (!stubborn)
+									throw e;
+							}
+						}
+					} finally {
+						finished.countDown();
+					}
+				}
+				return ones(individual);
+			}
+		};
+	}
+
+	@Test
+	public void testEvaluate() {
+		evaluator.evaluate(population, new FitnessFunction<Individual>() {
+			@Override
+			public double calculateFitness(Individual individual) {
+				return ones(individual);
+			}
+		});
+		for (Individual i : population)
+			assertEquals(ones(i), i.getFitness(), 0);
+	}
+
+	@Test
+	public void testConcurrencyBound() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		evaluator.evaluate(population, new FitnessFunction<Individual>() {
+			@Override
+			public double calculateFitness(Individual individual)
+					throws InterruptedException {
+				int n = running.incrementAndGet();
+				for (int m; (m = max.get()) < n && !max.compareAndSet(m, n);)
+					;
+				Thread.sleep(5);
+				running.decrementAndGet();
+				return 0;
+			}
+		});
+		assertTrue(max.get() <= 4);
+		assertTrue(max.get() > 1);
+	}
+
+	@Test
+	public void testTimeoutPenalty() {
+		evaluator.setTimeout(50, TimeUnit.MILLISECONDS, TimeoutPolicy.PENALTY,
+				-1);
+		evaluator.evaluate(population, sleeping(false, new CountDownLatch(1)));
+		for (Individual i : population)
+			assertEquals(slow.contains(i) ? -1 : ones(i), i.getFitness(), 0);
+		// the evaluation was cancelled rather than waited for
+		assertTrue(evaluator.getMakespan() < 400000000L);
+	}
+
+	@Test
+	public void testTimeoutFail() {
+		evaluator.setTimeout(50, TimeUnit.MILLISECONDS, TimeoutPolicy.FAIL,
+				Double.NaN);
+		try {
+			evaluator.evaluate(population, sleeping(false,
+					new CountDownLatch(1)));
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+	}
+
+	@Test
+	public void testTimeoutRecordedOnce() throws InterruptedException {
+		CostModel model = new CostModel(100);
+		evaluator.setCostModel(model);
+		CountDownLatch finished = new CountDownLatch(1);
+		evaluator.setTimeout(50, TimeUnit.MILLISECONDS, TimeoutPolicy.PENALTY,
+				-1);
+		evaluator.evaluate(population, sleeping(true, finished));
+		assertEquals(-1, population.get(3).getFitness(), 0);
+
+		// the stubborn evaluation returns after the call
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(population.size(), model.getSampleCount());
+	}
+
+	@Test
+	public void testFailure() {
+		final CountDownLatch finished = new CountDownLatch(1);
+		final FitnessFunction<Individual> sleeping = sleeping(false, finished);
+		try {
+			evaluator.evaluate(population, new FitnessFunction<Individual>() {
+				@Override
+				public double calculateFitness(Individual individual)
+						throws Exception {
+					if (individual == population.get(5))
+						throw new IOException("failed");
+					return sleeping.calculateFitness(individual);
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		// the slow evaluation was cancelled, not waited for
+		assertTrue(evaluator.getMakespan() < 400000000L);
+	}
+
+	@Test
+	public void testNaN() {
+		try {
+			evaluator.evaluate(population, new FitnessFunction<Individual>() {
+				@Override
+				public double calculateFitness(Individual individual) {
+					return Double.NaN;
+				}
+			});
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertFalse(population.get(0).hasFitness());
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.BatchDecoder;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.demo.ContinuousFunction;
+
+import org.junit.Test;
+
+public class ContinuousFunctionTest {
+	private static final int DIMENSION = 5;
+	private static final int N = 37;
+
+	@Test
+	public void testKernelsMatchScalar() {
+		Random random = new Random(51);
+		for (ContinuousFunction f : ContinuousFunction.values()) {
+			double[][] x = new double[DIMENSION][N];
+			for (double[] c : x) {
+				for (int k = 0; k < N; k++)
+					c[k] = f.min + random.nextDouble() * (f.max - f.min);
+			}
+			double[] result = new double[N];
+			f.evaluate(x, N, result);
+
+			double[] point = new double[DIMENSION];
+			for (int k = 0; k < N; k++) {
+				for (int d = 0; d < DIMENSION; d++)
+					point[d] = x[d][k];
+				double expected = f.evaluate(point);
+				assertEquals(expected, result[k], 1e-12 * Math.abs(expected));
+			}
+		}
+	}
+
+	@Test
+	public void testDecodedKernelsMatchIndividuals() {
+		Random random = new Random(52);
+		List<Individual> population = new ArrayList<>();
+		for (int k = 0; k < N; k++) {
+			Individual i = new Individual(new GenoType.Creator().append(20,
+					DIMENSION).append(64).inflate());
+			i.randomize(random);
+			population.add(i);
+		}
+
+		for (ContinuousFunction f : ContinuousFunction.values()) {
+			double[][] x = new double[DIMENSION][];
+			for (int d = 0; d < DIMENSION; d++)
+				x[d] = BatchDecoder.decode(population, d, f.min, f.max, null);
+			double[] result = new double[N];
+			f.evaluate(x, N, result);
+
+			double[] point = new double[DIMENSION];
+			for (int k = 0; k < N; k++) {
+				Individual i = population.get(k);
+				for (int d = 0; d < DIMENSION; d++)
+					point[d] = i.getGenoTypeDouble(d, f.min, f.max);
+				double expected = f.evaluate(point);
+				assertEquals(expected, result[k], 1e-12 * Math.abs(expected));
+			}
+		}
+
+		long[] raw = BatchDecoder.decode(population, DIMENSION, null);
+		for (int k = 0; k < N; k++) {
+			long[] words = population.get(k).toGenoTypeLongArray();
+			long expected = 0;
+			for (int b = 0; b < 64; b++) {
+				int n = 20 * DIMENSION + b;
+				if (n / 64 < words.length && (words[n / 64] & 1L << n) != 0)
+					expected |= 1L << b;
+			}
+			assertEquals(expected, raw[k]);
+		}
+	}
+}
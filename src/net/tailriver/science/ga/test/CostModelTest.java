@@ -0,0 +1,90 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.tailriver.science.ga.ConcurrentEvaluator;
+import net.tailriver.science.ga.CostModel;
+import net.tailriver.science.ga.FitnessFunction;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CostModelTest {
+	OneMax plan;
+	CostModel model;
+
+	@Before
+	public void setUp() {
+		plan = new OneMax(40, 4417);
+		model = new CostModel(100);
+	}
+
+	private static int ones(Individual individual) {
+		int ones = 0;
+		for (long w : individual.toGenoTypeLongArray())
+			ones += Long.bitCount(w);
+		return ones;
+	}
+
+	/** trains the model with time proportional to the number of 1 bits. */
+	private void train() {
+		for (int i = 0; i < 20; i++) {
+			Individual individual = plan.inflateIndividual();
+			model.record(individual, 1000 * ones(individual));
+		}
+	}
+
+	@Test
+	public void testPredict() {
+		Individual individual = plan.inflateIndividual();
+		assertEquals(0, model.predict(individual), 0);
+
+		train();
+		assertEquals(20, model.getSampleCount());
+		assertEquals(1000 * ones(individual), model.predict(individual), 1e-6);
+
+		// a measured geno-type is predicted by its measurement
+		model.record(individual, 7);
+		assertEquals(7, model.predict(individual), 0);
+	}
+
+	@Test
+	public void testLongestFirst() {
+		train();
+		List<Individual> population = new ArrayList<>();
+		for (int i = 0; i < 30; i++)
+			population.add(plan.inflateIndividual());
+
+		final List<Individual> started = Collections
+				.synchronizedList(new ArrayList<Individual>());
+		ConcurrentEvaluator<Individual> evaluator = new ConcurrentEvaluator<>(1);
+		evaluator.setCostModel(model);
+		try {
+			evaluator.evaluate(population, new FitnessFunction<Individual>() {
+				@Override
+				public double calculateFitness(Individual individual) {
+					started.add(individual);
+					return 0;
+				}
+			});
+		} finally {
+			evaluator.shutdown();
+		}
+
+		assertEquals(population.size(), started.size());
+		long total = 0;
+		for (int k = 0; k < started.size(); k++) {
+			total += 1000 * ones(started.get(k));
+			if (k > 0)
+				assertTrue(ones(started.get(k - 1)) >= ones(started.get(k)));
+		}
+		// one slot runs everything in a row
+		assertEquals(total, evaluator.getPredictedMakespan(), started.size());
+	}
+}
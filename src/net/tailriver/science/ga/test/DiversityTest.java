@@ -0,0 +1,83 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.tailriver.science.ga.Diversity;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Mask;
+
+import org.junit.Test;
+
+public class DiversityTest {
+	/**
+	 * @return individuals of 4 bits; bit 0 is set in all, bit 1 in two, bit 2
+	 *         in one, bit 3 in none.
+	 */
+	private static List<Individual> population() {
+		int[][] bits = { { 0, 1, 2 }, { 0, 1 }, { 0 }, { 0 } };
+		List<Individual> population = new ArrayList<>();
+		for (int[] set : bits) {
+			GenoType g = new GenoType.Creator().append(1, 4).inflate();
+			Mask mask = g.getMask();
+			for (int b : set)
+				mask.set(b);
+			g.invert(mask);
+			population.add(new Individual(g));
+		}
+		return population;
+	}
+
+	@Test
+	public void testUpdate() {
+		Diversity d = new Diversity();
+		d.update(population());
+		assertEquals(4, d.getSize());
+		assertEquals(4, d.getBitLength());
+		assertEquals(1, d.getAlleleFrequency(0), 0);
+		assertEquals(0.5, d.getAlleleFrequency(1), 0);
+		assertEquals(0.25, d.getAlleleFrequency(2), 0);
+		assertEquals(0, d.getAlleleFrequency(3), 0);
+		assertEquals(2, d.getConvergedBitCount());
+
+		// 2 * 2 + 1 * 3 differing pairs of 6
+		assertEquals(7 / 6d, d.getMeanHammingDistance(), 1e-12);
+
+		double h = -(0.25 * Math.log(0.25) + 0.75 * Math.log(0.75))
+				/ Math.log(2);
+		assertEquals((1 + h) / 4, d.getEntropy(), 1e-12);
+	}
+
+	@Test
+	public void testConverged() {
+		List<Individual> population = population();
+		Collections.fill(population, population.get(0));
+		Diversity d = new Diversity();
+		d.update(population);
+		assertEquals(4, d.getConvergedBitCount());
+		assertEquals(0, d.getEntropy(), 0);
+		assertEquals(0, d.getMeanHammingDistance(), 0);
+	}
+
+	@Test
+	public void testEmpty() {
+		Diversity d = new Diversity();
+		d.update(population());
+		d.update(new ArrayList<Individual>());
+		assertEquals(0, d.getSize());
+		assertEquals(0, d.getBitLength());
+		assertEquals(0, d.getEntropy(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentBitLengths() {
+		List<Individual> population = population();
+		population.add(new Individual(new GenoType.Creator().append(5)
+				.inflate()));
+		new Diversity().update(population);
+	}
+}
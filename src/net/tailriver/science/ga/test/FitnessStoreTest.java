@@ -0,0 +1,70 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.tailriver.science.ga.FitnessStore;
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FitnessStoreTest {
+	Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("fitness", ".bin");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		OneMax plan = new OneMax(12, 1);
+		Individual stored = plan.inflateIndividual();
+		stored.setFitness(3.5);
+		try (FitnessStore store = new FitnessStore(file, stored, 1, 100)) {
+			store.store(stored);
+		}
+
+		Individual same = stored.clone();
+		try (FitnessStore store = new FitnessStore(file, stored, 1, 100)) {
+			assertTrue(store.lookup(same));
+			assertEquals(3.5, same.getFitness(), 0);
+			assertEquals(1, store.getHits());
+		}
+		try (FitnessStore store = new FitnessStore(file, stored, 2, 100)) {
+			assertFalse(store.lookup(stored.clone()));
+			assertEquals(1, store.getMisses());
+		}
+	}
+
+	@Test
+	public void testGeneticAlgorithm() throws IOException {
+		OneMax plan = new OneMax(12, 1);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 30);
+		try (FitnessStore store = new FitnessStore(file,
+				plan.inflateIndividual(), 0, 1 << 12)) {
+			ga.setFitnessCache(store);
+			for (int g = 0; g < 20; g++) {
+				ga.cross(0.8, 0.9);
+				ga.mutate(0.01);
+				ga.select();
+			}
+			ga.getRankAt(1);
+			assertEquals(store.getMisses(), plan.evaluations);
+			assertTrue(store.getHits() > 0);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.tailriver.science.ga.GenerationPipeline;
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Instrumentation;
+import net.tailriver.science.ga.Instrumentation.Counter;
+import net.tailriver.science.ga.Instrumentation.Phase;
+import net.tailriver.science.ga.Instrumentation.Snapshot;
+
+import org.junit.Test;
+
+public class GenerationPipelineTest {
+	private static final int SIZE = 40;
+
+	/** OneMax whose evaluation may be called from several threads. */
+	static class ConcurrentOneMax extends OneMax {
+		ConcurrentOneMax(long seed) {
+			super(60, seed);
+		}
+
+		@Override
+		public synchronized void calculateFitness(List<Individual> population) {
+			super.calculateFitness(population);
+		}
+	}
+
+	private static GeneticAlgorithm<Individual> newGA(OneMax plan) {
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, SIZE);
+		ga.setReverseOrder(true);
+		return ga;
+	}
+
+	/** @return geno-types and fitness of all ranks, in sorted order. */
+	private static List<String> ranks(GeneticAlgorithm<Individual> ga) {
+		List<String> ranks = new ArrayList<>();
+		for (int r = 1; r <= ga.getSize(); r++) {
+			Individual i = ga.getRankAt(r);
+			ranks.add(i.getFitness() + " " + i.toGenoTypeString());
+		}
+		Collections.sort(ranks);
+		return ranks;
+	}
+
+	@Test
+	public void testSameAsSequentialWithoutVariation() {
+		GeneticAlgorithm<Individual> sequential = newGA(new OneMax(60, 808));
+		GeneticAlgorithm<Individual> piped = newGA(new ConcurrentOneMax(808));
+		List<String> initial = ranks(sequential);
+		assertEquals(initial, ranks(piped));
+
+		// without crossover, mutation and offspring, both keep everyone
+		sequential.cross(0, 0);
+		sequential.mutate(0);
+		GenerationPipeline<Individual> pipeline = new GenerationPipeline<>(
+				piped, 2, 2, 7, 2);
+		try {
+			pipeline.run(0, 0, 0);
+		} finally {
+			pipeline.shutdown();
+		}
+		assertEquals(initial, ranks(sequential));
+		assertEquals(initial, ranks(piped));
+		for (int r = 1; r < SIZE; r++)
+			assertTrue(piped.getRankAt(r).getFitness() >= piped.getRankAt(
+					r + 1).getFitness());
+	}
+
+	@Test
+	public void testEvolvesAsSequential() {
+		Instrumentation instrumentation = new Instrumentation(false);
+		GeneticAlgorithm<Individual> sequential = newGA(new OneMax(60, 3321));
+		GeneticAlgorithm<Individual> piped = newGA(new ConcurrentOneMax(3321));
+		piped.setInstrumentation(instrumentation);
+		double first = piped.getRankAt(1).getFitness();
+
+		Snapshot start = instrumentation.snapshot();
+		GenerationPipeline<Individual> pipeline = new GenerationPipeline<>(
+				piped, 2, 3, 4, 2);
+		try {
+			for (int g = 0; g < 30; g++) {
+				sequential.cross(0.8, 0.9);
+				sequential.mutate(1 / 60d);
+				sequential.select();
+				pipeline.run(0.8, 0.9, 1 / 60d);
+				piped.select();
+			}
+		} finally {
+			pipeline.shutdown();
+		}
+		Snapshot s = instrumentation.snapshot().since(start);
+
+		double best = piped.getRankAt(1).getFitness();
+		assertTrue(best > first);
+		// a different random stream, but a comparable search
+		assertEquals(sequential.getRankAt(1).getFitness(), best, 10);
+
+		// breeding is instrumented as in the sequential path
+		assertTrue(s.getCalls(Phase.CROSS) >= 30);
+		assertTrue(s.getCalls(Phase.MUTATE) >= 30);
+		assertTrue(s.getCount(Counter.CROSSOVERS) > 0);
+		assertTrue(s.getCount(Counter.CLONES) >= 30 * SIZE);
+		assertTrue(s.getCount(Counter.FLIPPED_BITS) > 0);
+	}
+
+	private static void assertStageFails(GeneticAlgorithm<Individual> ga,
+			RuntimeException cause) {
+		List<String> before = ranks(ga);
+		GenerationPipeline<Individual> pipeline = new GenerationPipeline<>(ga,
+				2, 2, 4, 1);
+		try {
+			pipeline.run(1, 1, 0.1);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(cause, e.getCause());
+		} finally {
+			pipeline.shutdown();
+		}
+		assertEquals(before, ranks(ga));
+	}
+
+	@Test
+	public void testFailingBreeder() {
+		final RuntimeException cause = new RuntimeException("crossover");
+		assertStageFails(newGA(new ConcurrentOneMax(11) {
+			@Override
+			public void applyCrossOver(Individual x, Individual y) {
+				throw cause;
+			}
+		}), cause);
+	}
+
+	@Test
+	public void testFailingEvaluator() {
+		final RuntimeException cause = new RuntimeException("evaluation");
+		assertStageFails(newGA(new ConcurrentOneMax(12) {
+			@Override
+			public synchronized void calculateFitness(
+					List<Individual> population) {
+				if (evaluations >= SIZE)
+					throw cause;
+				super.calculateFitness(population);
+			}
+		}), cause);
+	}
+}
@@ -0,0 +1,84 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GeneticAlgorithmRunner;
+import net.tailriver.science.ga.GeneticAlgorithmRunner.Progress;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Instrumentation;
+import net.tailriver.science.ga.StoppingCriteria;
+
+import org.junit.Test;
+
+public class GeneticAlgorithmRunnerTest {
+	private static GeneticAlgorithmRunner<Individual> runner() {
+		return runner(new OneMax(40, 1));
+	}
+
+	private static GeneticAlgorithmRunner<Individual> runner(OneMax plan) {
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 30);
+		ga.setReverseOrder(true);
+		return new GeneticAlgorithmRunner<>(ga, 0.8, 0.9, 0.02);
+	}
+
+	@Test
+	public void testCriteria() {
+		OneMax plan = new OneMax(40, 1);
+		Progress<Individual> p = runner(plan).run(
+				StoppingCriteria.fitnessAtLeast(40),
+				StoppingCriteria.generations(1000));
+		assertEquals("fitness >= 40.0", p.getStopReason());
+		assertEquals(40, p.getBest().getFitness(), 0);
+		// survivors keep their fitness, so not all 30 are evaluated again
+		assertEquals(plan.scored, p.getEvaluations());
+		assertTrue(p.getEvaluations() < 30 * p.getGeneration());
+
+		p = runner().run(
+				StoppingCriteria.allOf(StoppingCriteria.generations(5),
+						StoppingCriteria.evaluations(300)));
+		assertTrue(p.getGeneration() >= 5);
+		assertTrue(p.getEvaluations() >= 300);
+		assertTrue(p.getEvaluations() < 300 + 30);
+	}
+
+	@Test
+	public void testInstrumentation() {
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(new OneMax(
+				40, 3), 30);
+		Progress<Individual> p = new GeneticAlgorithmRunner<>(ga, 0.8, 0.9,
+				0.02).run(StoppingCriteria.generations(3));
+		// set only while running
+		assertNull(ga.getInstrumentation());
+		assertTrue(p.getEvaluations() >= 30);
+
+		Instrumentation instrumentation = new Instrumentation(false);
+		ga.setInstrumentation(instrumentation);
+		new GeneticAlgorithmRunner<>(ga, 0.8, 0.9, 0.02)
+				.run(StoppingCriteria.generations(3));
+		assertSame(instrumentation, ga.getInstrumentation());
+	}
+
+	@Test
+	public void testInterrupt() throws InterruptedException {
+		final GeneticAlgorithmRunner<Individual> runner = runner();
+		final Progress<?>[] result = new Progress<?>[1];
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				result[0] = runner.run(StoppingCriteria.fitnessAtLeast(41));
+			}
+		};
+		t.start();
+		Thread.sleep(100);
+		t.interrupt();
+		t.join(TimeUnit.SECONDS.toMillis(10));
+		assertEquals("interrupted", result[0].getStopReason());
+		assertTrue(result[0].getStagnation() > 0);
+	}
+}
@@ -0,0 +1,73 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.tailriver.science.ga.FitnessCache;
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.Test;
+
+public class GeneticAlgorithmTest {
+	/** records individuals passed to crossover. */
+	static class RecordingOneMax extends OneMax {
+		List<Individual> crossed = new ArrayList<>();
+
+		RecordingOneMax() {
+			super(40, 20394);
+		}
+
+		@Override
+		public void applyCrossOver(Individual x, Individual y) {
+			crossed.add(x);
+			crossed.add(y);
+			super.applyCrossOver(x, y);
+		}
+	}
+
+	/** counts lookups; finds nothing. */
+	static class CountingCache implements FitnessCache {
+		int lookups;
+
+		@Override
+		public boolean lookup(Individual individual) {
+			lookups++;
+			return false;
+		}
+
+		@Override
+		public void store(Individual individual) {
+		}
+	}
+
+	@Test
+	public void testCacheSkipsEvaluated() {
+		OneMax plan = new OneMax(40, 5120);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 20);
+		CountingCache cache = new CountingCache();
+		ga.setFitnessCache(cache);
+		ga.getRankAt(1);
+		assertEquals(20, cache.lookups);
+
+		// nothing changes, but the population is sorted again
+		ga.mutate(0);
+		ga.getRankAt(1);
+		assertEquals(20, cache.lookups);
+		assertEquals(20, plan.evaluations);
+	}
+
+	@Test
+	public void testCrossInvalidatesFitness() {
+		RecordingOneMax plan = new RecordingOneMax();
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 20);
+		ga.getRankAt(1);
+		ga.cross(1, 1);
+		assertFalse(plan.crossed.isEmpty());
+		for (Individual i : plan.crossed)
+			assertFalse(i.hasFitness());
+	}
+}
@@ -71,6 +71,55 @@ public class GenoTypeTest {
 		assertEquals("1110 0001 0101 1000 1011 1011 0011 0010", b.toString());
 	}
 
+	@Test
+	public void testLongHashCode() {
+		random = new Random(98213);
+		GenoType a = new GenoType(c);
+		GenoType b = new GenoType(c);
+		assertEquals(0, a.longHashCode());
+		randomize(a);
+		mask.clear();
+		randomize(b);
+		mask.clear();
+		mask.set(5, 27);
+		GenoType.swap(a, b, mask);
+
+		// rebuild from scratch and compare with incrementally updated hash
+		for (GenoType g : new GenoType[] { a, b }) {
+			GenoType fresh = new GenoType(c);
+			mask.clear();
+			for (int i = 0; i < mask.length; i++) {
+				if (g.getBit(i))
+					mask.set(i);
+			}
+			fresh.invert(mask);
+			assertEquals(g.toString(), fresh.toString());
+			assertEquals(g.longHashCode(), fresh.longHashCode());
+			assertEquals(g.longHashCode(), new GenoType(g).longHashCode());
+		}
+		assertFalse(a.longHashCode() == b.longHashCode());
+	}
+
+	@Test
+	public void testCopyWords() {
+		GenoType g = new GenoType.Creator().append(50, 3).inflate();
+		mask = g.getMask();
+		mask.set(3);
+		mask.set(70);
+		g.invert(mask);
+		assertEquals(3, g.getWordCount());
+		assertEquals(2, g.toLongArray().length);
+
+		long[] words = new long[] { -1, -1, -1, -1, -1 };
+		g.copyWords(words, 1);
+		assertArrayEquals(new long[] { -1, 1L << 3, 1L << 6, 0, -1 }, words);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCopyWordsShort() {
+		c.copyWords(new long[2], 2);
+	}
+
 	@Test
 	public void testCopy() {
 		GenoType copy = new GenoType(c);
@@ -0,0 +1,73 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.HistoryArchive;
+import net.tailriver.science.ga.Individual;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistoryArchiveTest {
+	Path file;
+	Path index;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("history", ".bin");
+		index = file.resolveSibling(file.getFileName() + ".idx");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(index);
+	}
+
+	private static List<String> describe(List<Individual> population) {
+		List<String> list = new ArrayList<>();
+		for (Individual i : population)
+			list.add(i.toGenoTypeString() + i);
+		return list;
+	}
+
+	@Test
+	public void testRandomAccess() throws IOException {
+		OneMax plan = new OneMax(300, 30311);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 60);
+		ga.setReverseOrder(true);
+		List<List<String>> expected = new ArrayList<>();
+		try (HistoryArchive.Writer writer = new HistoryArchive.Writer(file,
+				plan.inflateIndividual(), 16)) {
+			for (int g = 0; g < 50; g++) {
+				ga.cross(0.6, 0.5);
+				ga.mutate(0.002);
+				List<Individual> population = new ArrayList<>();
+				for (int r = 1; r <= ga.getSize(); r++)
+					population.add(ga.getRankAt(r));
+				writer.append(population);
+				expected.add(describe(population));
+				ga.select();
+			}
+		}
+
+		// keyframes alone take 60 * 48 bytes per generation
+		assertTrue(Files.size(file) < 50 * 60 * 48 / 2);
+
+		try (HistoryArchive.Reader reader = new HistoryArchive.Reader(file)) {
+			assertEquals(50, reader.getGenerationCount());
+			for (int g : new int[] { 37, 0, 15, 16, 49, 1 })
+				assertEquals(expected.get(g),
+						describe(reader.read(g, plan.inflateIndividual())));
+		}
+	}
+}
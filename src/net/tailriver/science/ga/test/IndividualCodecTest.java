@@ -0,0 +1,97 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.IndividualCodec;
+
+import org.junit.Test;
+
+public class IndividualCodecTest {
+	private static Individual inflate() {
+		GenoType g = new GenoType.Creator().append(1, 70).append(16, 3)
+				.inflate();
+		return new Individual(g);
+	}
+
+	private static byte[] write(List<Individual> population)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (IndividualCodec.Writer writer = new IndividualCodec.Writer(
+				Channels.newChannel(out), inflate())) {
+			for (Individual i : population)
+				writer.write(i);
+		}
+		return out.toByteArray();
+	}
+
+	private static IndividualCodec.Reader<Individual> reader(byte[] bytes)
+			throws IOException {
+		return new IndividualCodec.Reader<>(Channels.newChannel(
+				new ByteArrayInputStream(bytes)), inflate());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(8812);
+		List<Individual> population = new ArrayList<>();
+		for (int k = 0; k < 5000; k++) {
+			Individual i = inflate();
+			i.randomize(random);
+			if (k % 3 != 0)
+				i.setFitness(random.nextGaussian());
+			population.add(i);
+		}
+
+		byte[] bytes = write(population);
+		// header of 4 + 4 + 4 + 73 * 4 bytes, 8 + 8 * 2 bytes per record
+		assertEquals(304 + 24 * 5000, bytes.length);
+
+		try (IndividualCodec.Reader<Individual> reader = reader(bytes)) {
+			for (Individual expected : population) {
+				Individual actual = reader.read();
+				assertEquals(expected.toGenoTypeString(),
+						actual.toGenoTypeString());
+				assertEquals(expected.hasFitness(), actual.hasFitness());
+				if (expected.hasFitness())
+					assertEquals(expected.getFitness(), actual.getFitness(), 0);
+			}
+			assertNull(reader.read());
+		}
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		byte[] bytes = write(Arrays.asList(inflate(), inflate()));
+		try (IndividualCodec.Reader<Individual> reader = reader(Arrays
+				.copyOf(bytes, bytes.length - 1))) {
+			assertFalse(reader.read().hasFitness());
+			reader.read();
+			assertTrue(false);
+		} catch (EOFException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testSchemaMismatch() throws IOException {
+		byte[] bytes = write(new ArrayList<Individual>());
+		GenoType g = new GenoType.Creator().append(1, 71).inflate();
+		new IndividualCodec.Reader<>(Channels.newChannel(
+				new ByteArrayInputStream(bytes)), new Individual(g));
+	}
+}
@@ -0,0 +1,71 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.Instrumentation;
+import net.tailriver.science.ga.Instrumentation.Counter;
+import net.tailriver.science.ga.Instrumentation.Phase;
+import net.tailriver.science.ga.Instrumentation.Snapshot;
+
+import org.junit.Test;
+
+public class InstrumentationTest {
+	static Snapshot evolve(Instrumentation instrumentation,
+			OneMax plan, int generations) {
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 20);
+		ga.setInstrumentation(instrumentation);
+		Snapshot start = instrumentation.snapshot();
+		for (int g = 0; g < generations; g++) {
+			ga.cross(0.8, 0.9);
+			ga.mutate(0.05);
+			ga.select();
+		}
+		return instrumentation.snapshot().since(start);
+	}
+
+	@Test
+	public void testCounters() {
+		OneMax plan = new OneMax(80, 1);
+		Snapshot s = evolve(new Instrumentation(false), plan, 10);
+		for (Phase p : Phase.values())
+			assertEquals(10, s.getCalls(p));
+		// survivors passed again are not counted
+		assertEquals(plan.scored, s.getCount(Counter.EVALUATIONS));
+		assertTrue(plan.scored < plan.evaluations);
+		assertTrue(s.getCount(Counter.CROSSOVERS) > 0);
+		assertTrue(s.getCount(Counter.CLONES) >= 2 * s
+				.getCount(Counter.CROSSOVERS));
+		assertTrue(s.getCount(Counter.FLIPPED_BITS) > 0);
+	}
+
+	@Test
+	public void testOverriddenMutate() {
+		// subclasses overriding mutate are still called, and counted
+		OneMax plan = new OneMax(40, 2) {
+			@Override
+			public Individual inflateIndividual() {
+				GenoType g = new GenoType.Creator().append(1, nbit).inflate();
+				return new Individual(g) {
+					@Override
+					public void mutate(Random random, double probability) {
+						super.mutate(random, 1);
+					}
+				};
+			}
+		};
+		Instrumentation instrumentation = new Instrumentation(false);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 10);
+		ga.setInstrumentation(instrumentation);
+		Snapshot start = instrumentation.snapshot();
+		ga.mutate(0);
+		Snapshot s = instrumentation.snapshot().since(start);
+		// the rate of 0 would flip nothing without the override
+		assertEquals(10 * 40, s.getCount(Counter.FLIPPED_BITS));
+	}
+}
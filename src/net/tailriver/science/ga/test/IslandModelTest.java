@@ -0,0 +1,111 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.IslandModel;
+import net.tailriver.science.ga.IslandModel.PlanFactory;
+import net.tailriver.science.ga.IslandModel.Policy;
+import net.tailriver.science.ga.IslandModel.Topology;
+
+import org.junit.Test;
+
+public class IslandModelTest {
+	/** creates a OneMax plan per island and keeps them. */
+	static class Plans implements PlanFactory<Individual> {
+		final List<OneMax> plans = new ArrayList<>();
+
+		@Override
+		public GeneticAlgorithmPlan<Individual> newPlan(int island) {
+			OneMax plan = new OneMax(60, 100 + island);
+			plans.add(plan);
+			return plan;
+		}
+	}
+
+	/** counts emigrants. */
+	static class CountingIslandModel extends IslandModel<Individual> {
+		final AtomicInteger emigrants = new AtomicInteger();
+
+		CountingIslandModel(PlanFactory<Individual> factory) {
+			super(factory, 4, 20);
+		}
+
+		@Override
+		protected void onEmigrate(int island, List<Individual> migrants) {
+			for (Individual m : migrants)
+				assertTrue(m.hasFitness());
+			emigrants.addAndGet(migrants.size());
+		}
+	}
+
+	private static CountingIslandModel model(Plans plans) {
+		CountingIslandModel model = new CountingIslandModel(plans);
+		for (int i = 0; i < model.getIslandCount(); i++)
+			model.getIsland(i).setReverseOrder(true);
+		return model;
+	}
+
+	@Test
+	public void testRun() throws InterruptedException {
+		for (Topology topology : Topology.values()) {
+			Plans plans = new Plans();
+			CountingIslandModel model = model(plans);
+			double first = model.getBest().getFitness();
+			model.setMigration(topology, 5, 2, Policy.BEST, Policy.WORST);
+			model.run(30, 0.8, 0.9, 1 / 60d);
+
+			// 6 migrations of 2 emigrants from each of 4 islands
+			assertEquals(6 * 2 * 4, model.emigrants.get());
+			assertTrue(model.getBest().getFitness() >= first);
+		}
+	}
+
+	@Test
+	public void testEvaluatedOncePerGeneration()
+			throws InterruptedException {
+		Plans plans = new Plans();
+		CountingIslandModel model = model(plans);
+		model.getBest();
+		for (OneMax plan : plans.plans)
+			plan.evaluations = 0;
+
+		// immigrants arrive every generation but the first
+		model.setMigration(Topology.RING, 1, 3, Policy.RANDOM, Policy.WORST);
+		model.run(10, 0.8, 0.9, 1 / 60d);
+		for (OneMax plan : plans.plans)
+			assertEquals(20 * 10, plan.evaluations);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFailure() throws InterruptedException {
+		IslandModel<Individual> model = new IslandModel<>(
+				new PlanFactory<Individual>() {
+					@Override
+					public GeneticAlgorithmPlan<Individual> newPlan(int island) {
+						return new OneMax(60, island) {
+							@Override
+							public void calculateFitness(
+									List<Individual> population) {
+								if (evaluations > 100)
+									throw new IllegalStateException("failed");
+								super.calculateFitness(population);
+							}
+						};
+					}
+				}, 3, 20);
+		model.run(1000, 0.8, 0.9, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInterval() {
+		model(new Plans()).setMigration(Topology.RING, 0, 1, Policy.BEST,
+				Policy.WORST);
+	}
+}
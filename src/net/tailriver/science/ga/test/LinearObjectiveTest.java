@@ -0,0 +1,62 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.tailriver.science.ga.LinearObjective;
+
+import org.junit.Test;
+
+public class LinearObjectiveTest {
+	@Test
+	public void testEvaluate() {
+		Random random = new Random(2801);
+		for (int nbit : new int[] { 1, 7, 64, 150 }) {
+			int[][] weights = new int[3][nbit];
+			for (int[] w : weights) {
+				for (int b = 0; b < nbit; b++)
+					w[b] = random.nextInt(201) - 100;
+			}
+			LinearObjective objective = new LinearObjective(weights);
+			assertEquals(nbit, objective.getBitLength());
+			assertEquals(3, objective.getVectorCount());
+
+			int[] result = null;
+			for (int trial = 0; trial < 50; trial++) {
+				// one more word than needed, all bits random
+				long[] words = new long[nbit / 64 + 2];
+				for (int w = 0; w < words.length; w++)
+					words[w] = random.nextLong();
+
+				int[] expected = new int[weights.length];
+				for (int v = 0; v < weights.length; v++) {
+					for (int b = 0; b < nbit; b++) {
+						if ((words[b / 64] & 1L << b) != 0)
+							expected[v] += weights[v][b];
+					}
+					assertEquals(expected[v], objective.evaluate(words, v));
+				}
+				result = objective.evaluate(words, result);
+				assertArrayEquals(expected, result);
+			}
+		}
+	}
+
+	@Test
+	public void testEvaluateShortWords() {
+		int[] weights = new int[130];
+		for (int b = 0; b < weights.length; b++)
+			weights[b] = b + 1;
+		LinearObjective objective = new LinearObjective(weights);
+		// trailing zero words omitted as GenoType.toLongArray() does
+		assertEquals(1 + 65, objective.evaluate(new long[] { 1, 1 }, 0));
+		assertEquals(0, objective.evaluate(new long[0], 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentLengths() {
+		new LinearObjective(new int[3], new int[4]);
+	}
+}
@@ -0,0 +1,92 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.tailriver.science.ga.MigrationQueue;
+
+import org.junit.Test;
+
+public class MigrationQueueTest {
+	@Test
+	public void testOfferPoll() {
+		MigrationQueue<Integer> q = new MigrationQueue<>(5);
+		assertEquals(8, q.capacity());
+		assertNull(q.poll());
+		for (int i = 0; i < 8; i++)
+			assertTrue(q.offer(i));
+		assertFalse(q.offer(8));
+		assertEquals(8, q.size());
+
+		// FIFO, and slots are reused after polling
+		for (int i = 0; i < 4; i++)
+			assertEquals(Integer.valueOf(i), q.poll());
+		for (int i = 8; i < 12; i++)
+			assertTrue(q.offer(i));
+		for (int i = 4; i < 12; i++)
+			assertEquals(Integer.valueOf(i), q.poll());
+		assertNull(q.poll());
+		assertEquals(0, q.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testOfferNull() {
+		new MigrationQueue<Integer>(1).offer(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacity() {
+		new MigrationQueue<Integer>(0);
+	}
+
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		final MigrationQueue<Long> q = new MigrationQueue<>(64);
+		final int producers = 4;
+		final int perProducer = 20000;
+		final AtomicLong received = new AtomicLong();
+		final AtomicLong sum = new AtomicLong();
+		Thread[] threads = new Thread[2 * producers];
+		for (int p = 0; p < producers; p++) {
+			final long base = (long) p * perProducer;
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (long v = base; v < base + perProducer;) {
+						if (q.offer(v))
+							v++;
+						else
+							Thread.yield();
+					}
+				}
+			};
+			threads[producers + p] = new Thread() {
+				@Override
+				public void run() {
+					while (received.get() < producers * perProducer) {
+						Long v = q.poll();
+						if (v == null) {
+							Thread.yield();
+							continue;
+						}
+						sum.addAndGet(v);
+						received.incrementAndGet();
+					}
+				}
+			};
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+
+		long n = (long) producers * perProducer;
+		assertEquals(n, received.get());
+		assertEquals(n * (n - 1) / 2, sum.get());
+		assertNull(q.poll());
+	}
+}
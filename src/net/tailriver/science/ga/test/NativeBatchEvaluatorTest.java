@@ -0,0 +1,82 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.NativeBatchEvaluator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs with native/popcount.c as the kernel. It is skipped unless the
+ * libraries built by <code>make native</code> are on
+ * <code>java.library.path</code>.
+ */
+public class NativeBatchEvaluatorTest {
+	NativeBatchEvaluator<Individual> evaluator;
+
+	@Before
+	public void setUp() {
+		File popcount = null;
+		for (String dir : System.getProperty("java.library.path").split(
+				File.pathSeparator)) {
+			File f = new File(dir, System.mapLibraryName("popcount"));
+			if (f.isFile())
+				popcount = f;
+		}
+		assumeTrue(popcount != null);
+		try {
+			System.loadLibrary("gabridge");
+		} catch (UnsatisfiedLinkError e) {
+			assumeTrue(false);
+		}
+		evaluator = new NativeBatchEvaluator<>(popcount.getPath(), "popcount");
+	}
+
+	private static void assertPopCount(List<Individual> population) {
+		for (Individual i : population) {
+			int ones = 0;
+			for (long w : i.toGenoTypeLongArray())
+				ones += Long.bitCount(w);
+			assertEquals(ones, i.getFitness(), 0);
+		}
+	}
+
+	@Test
+	public void testEvaluate() {
+		// 150 bits do not fill the last word
+		OneMax plan = new OneMax(150, 3391);
+		for (int size : new int[] { 1, 10, 300, 20 }) {
+			List<Individual> population = new ArrayList<>();
+			for (int i = 0; i < size; i++)
+				population.add(plan.inflateIndividual());
+			evaluator.evaluate(population);
+			assertPopCount(population);
+		}
+		evaluator.evaluate(new ArrayList<Individual>());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		final Individual individual = new OneMax(64, 1).inflateIndividual();
+		// 8 bytes times 2^28 individuals overflow int
+		evaluator.evaluate(new AbstractList<Individual>() {
+			@Override
+			public Individual get(int index) {
+				return individual;
+			}
+
+			@Override
+			public int size() {
+				return 1 << 28;
+			}
+		});
+	}
+}
@@ -0,0 +1,60 @@
+package net.tailriver.science.ga.test;
+
+import java.util.List;
+import java.util.Random;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GeneticAlgorithmPlan;
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+
+/** maximizes the number of 1 bits; counts evaluated individuals. */
+public class OneMax implements GeneticAlgorithmPlan<Individual> {
+	final Random random;
+	final int nbit;
+	int evaluations;
+	/** individuals evaluated without valid fitness. */
+	int scored;
+
+	public OneMax(int nbit, long seed) {
+		this.nbit = nbit;
+		random = new Random(seed);
+	}
+
+	@Override
+	public Individual inflateIndividual() {
+		GenoType g = new GenoType.Creator().append(1, nbit).inflate();
+		Individual i = new Individual(g);
+		i.randomize(random);
+		return i;
+	}
+
+	@Override
+	public Random getRandom() {
+		return random;
+	}
+
+	@Override
+	public void calculateFitness(List<Individual> population) {
+		for (Individual i : population) {
+			int ones = 0;
+			for (long w : i.toGenoTypeLongArray())
+				ones += Long.bitCount(w);
+			if (!i.hasFitness())
+				scored++;
+			i.setFitness(ones);
+			evaluations++;
+		}
+	}
+
+	@Override
+	public void applyCrossOver(Individual x, Individual y) {
+		Individual.crossOverTwoPoint(x, y, random);
+	}
+
+	@Override
+	public List<Individual> applySelection(List<Individual> population) {
+		return GeneticAlgorithm.selectTournament(population, random,
+				population.size(), 2);
+	}
+}
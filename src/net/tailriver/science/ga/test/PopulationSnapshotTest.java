@@ -0,0 +1,69 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.PopulationSnapshot;
+
+import org.junit.Test;
+
+public class PopulationSnapshotTest {
+	@Test
+	public void testPublish() throws InterruptedException {
+		final GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(
+				new OneMax(64, 1), 40);
+		ga.setReverseOrder(true);
+		ga.getRankAt(1);
+		assertNull(ga.getSnapshot());
+		ga.setSnapshotSize(5);
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicBoolean consistent = new AtomicBoolean(true);
+		final AtomicLong reads = new AtomicLong();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				long epoch = -1;
+				while (!done.get()) {
+					PopulationSnapshot<Individual> s = ga.getSnapshot();
+					if (s == null)
+						continue;
+					if (s.getEpoch() < epoch
+							|| s.getRankAt(1).getFitness() != s
+									.getBestFitness()
+							|| s.getFitnessAt(1) < s.getFitnessAt(40))
+						consistent.set(false);
+					epoch = s.getEpoch();
+					reads.incrementAndGet();
+				}
+			}
+		};
+		reader.start();
+		for (int g = 0; g < 50; g++) {
+			ga.cross(0.8, 0.9);
+			ga.mutate(0.02);
+			ga.select();
+		}
+		done.set(true);
+		reader.join();
+
+		PopulationSnapshot<Individual> s = ga.getSnapshot();
+		assertEquals(49, s.getEpoch());
+		assertEquals(5, s.getIndividualCount());
+		assertTrue(consistent.get());
+		assertTrue(reads.get() > 0);
+
+		// later generations do not change a published snapshot
+		Individual best = s.getRankAt(1);
+		ga.mutate(0.5);
+		assertFalse(ga.getSnapshot() != s);
+		assertEquals(best.toGenoTypeString(), s.getRankAt(1).toGenoTypeString());
+	}
+}
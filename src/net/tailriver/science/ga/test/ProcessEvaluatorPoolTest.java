@@ -0,0 +1,140 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.tailriver.science.ga.GenoType;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.ProcessEvaluatorPool;
+import net.tailriver.science.ga.demo.PopCountWorker;
+
+import org.junit.Test;
+
+public class ProcessEvaluatorPoolTest {
+	private static ProcessBuilder worker(String... args) {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PopCountWorker.class.getName());
+		for (String a : args)
+			command.add(a);
+		return new ProcessBuilder(command);
+	}
+
+	private static List<Individual> population(int size) {
+		Random random = new Random(5527);
+		List<Individual> population = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			GenoType g = new GenoType.Creator().append(1, 100).inflate();
+			Individual individual = new Individual(g);
+			// leave the first one empty, whose words are trimmed
+			if (i > 0)
+				individual.randomize(random);
+			population.add(individual);
+		}
+		return population;
+	}
+
+	private static void assertPopCount(List<Individual> population) {
+		for (Individual i : population) {
+			int ones = 0;
+			for (long w : i.toGenoTypeLongArray())
+				ones += Long.bitCount(w);
+			assertEquals(ones, i.getFitness(), 0);
+		}
+	}
+
+	@Test
+	public void testEvaluate() {
+		List<Individual> population = population(100);
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker(), 2, 8, 2)) {
+			pool.evaluate(population);
+			pool.evaluate(population.subList(0, 3));
+			assertEquals(0, pool.getRestarts());
+		}
+		assertPopCount(population);
+	}
+
+	@Test
+	public void testRestart() {
+		List<Individual> population = population(100);
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker("3"), 2, 8, 2)) {
+			pool.evaluate(population);
+			assertTrue(pool.getRestarts() > 0);
+		}
+		assertPopCount(population);
+	}
+
+	@Test
+	public void testTimeout() {
+		List<Individual> population = population(100);
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker("3", "hang"), 2, 8, 2)) {
+			pool.setTimeout(300, TimeUnit.MILLISECONDS);
+			pool.evaluate(population);
+			assertTrue(pool.getRestarts() > 0);
+		}
+		assertPopCount(population);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testHungBatch() {
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker("0", "hang"), 1, 8, 2)) {
+			pool.setTimeout(200, TimeUnit.MILLISECONDS);
+			pool.evaluate(population(8));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testPoisonBatch() {
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker("0"), 1, 8, 2)) {
+			pool.evaluate(population(8));
+		}
+	}
+
+	@Test
+	public void testFailureDropsBatches() throws InterruptedException {
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				worker("0"), 1, 8, 1)) {
+			try {
+				pool.evaluate(population(40));
+				fail();
+			} catch (IllegalStateException e) {
+				// the first batch is given up
+			}
+			// the other 4 batches would kill the worker 3 times each; one of
+			// them may be outstanding already
+			int restarts = pool.getRestarts();
+			Thread.sleep(1500);
+			assertTrue(pool.getRestarts() <= restarts + 2);
+		}
+	}
+
+	@Test
+	public void testBuilderCopied() {
+		ProcessBuilder builder = worker();
+		List<Individual> population = population(20);
+		try (ProcessEvaluatorPool<Individual> pool = new ProcessEvaluatorPool<>(
+				builder, 1, 8, 2)) {
+			assertEquals(Redirect.PIPE, builder.redirectError());
+			// later changes do not affect the pool
+			builder.command().set(builder.command().size() - 1, "NoSuchClass");
+			pool.evaluate(population);
+		}
+		assertPopCount(population);
+	}
+}
@@ -0,0 +1,132 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.IslandModel.Policy;
+import net.tailriver.science.ga.IslandModel.Topology;
+import net.tailriver.science.ga.SocketIslandModel;
+
+import org.junit.Test;
+
+public class SocketIslandModelTest {
+	private static final int MAGIC = 0x47414d31;
+	private static final InetSocketAddress LOOPBACK = new InetSocketAddress(
+			"127.0.0.1", 0);
+
+	private static SocketIslandModel<Individual> model(
+			InetSocketAddress... peers) throws IOException {
+		return new SocketIslandModel<>(new IslandModelTest.Plans(), 2, 20,
+				LOOPBACK, Arrays.asList(peers));
+	}
+
+	/**
+	 * Writes a frame of one-word chromosomes. The stream should be buffered,
+	 * so that frames are sent at once before the receiver closes the
+	 * connection.
+	 *
+	 * @param count
+	 *            number of individuals declared in the header.
+	 * @param records
+	 *            number of individuals actually written.
+	 */
+	private static void writeFrame(DataOutputStream out, int count,
+			int records) throws IOException {
+		out.writeInt(12 + records * 16);
+		out.writeInt(MAGIC);
+		out.writeInt(count);
+		out.writeInt(1);
+		for (int k = 0; k < records; k++) {
+			out.writeDouble(k);
+			out.writeLong(k);
+		}
+	}
+
+	private static void awaitReceived(SocketIslandModel<?> model, long frames)
+			throws InterruptedException {
+		for (int k = 0; k < 500 && model.getReceivedFrames() < frames; k++)
+			Thread.sleep(10);
+		assertEquals(frames, model.getReceivedFrames());
+	}
+
+	/** @return whether the other side closed the connection. */
+	private static boolean isClosedByPeer(Socket socket) throws IOException {
+		socket.setSoTimeout(5000);
+		try {
+			return socket.getInputStream().read() < 0;
+		} catch (SocketException e) {
+			// connection reset
+			return true;
+		}
+	}
+
+	@Test
+	public void testLoopback() throws IOException, InterruptedException {
+		try (SocketIslandModel<Individual> receiver = model()) {
+			receiver.start();
+			try (SocketIslandModel<Individual> sender = model(receiver
+					.getLocalAddress())) {
+				sender.setMigration(Topology.RING, 1, 2, Policy.BEST,
+						Policy.WORST);
+				sender.run(5, 0.8, 0.9, 1 / 60d);
+
+				// one frame per island and generation
+				awaitReceived(receiver, 2 * 5);
+				assertEquals(2 * 5, sender.getSentFrames());
+				assertEquals(0, sender.getDroppedFrames());
+			}
+		}
+	}
+
+	@Test
+	public void testLengthMismatch() throws IOException, InterruptedException {
+		try (SocketIslandModel<Individual> receiver = model()) {
+			receiver.start();
+			InetSocketAddress address = receiver.getLocalAddress();
+
+			// the header claims two individuals but the length covers one; the
+			// valid frame behind it must not be read as the second individual
+			try (Socket socket = new Socket(address.getAddress(),
+					address.getPort())) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(socket.getOutputStream()));
+				writeFrame(out, 2, 1);
+				writeFrame(out, 1, 1);
+				out.flush();
+				assertTrue(isClosedByPeer(socket));
+			}
+			assertEquals(0, receiver.getReceivedFrames());
+
+			// and a frame longer than its header says
+			try (Socket socket = new Socket(address.getAddress(),
+					address.getPort())) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(socket.getOutputStream()));
+				writeFrame(out, 1, 2);
+				out.flush();
+				assertTrue(isClosedByPeer(socket));
+			}
+			assertEquals(0, receiver.getReceivedFrames());
+
+			// the receiver keeps accepting valid frames
+			try (Socket socket = new Socket(address.getAddress(),
+					address.getPort())) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(socket.getOutputStream()));
+				writeFrame(out, 1, 1);
+				writeFrame(out, 0, 0);
+				out.flush();
+				awaitReceived(receiver, 2);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.SteadyStateGeneticAlgorithm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SteadyStateGeneticAlgorithmTest {
+	SteadyStateGeneticAlgorithm<Individual> ga;
+
+	@Before
+	public void setUp() {
+		ga = new SteadyStateGeneticAlgorithm<>(new OneMax(40, 7402981), 30);
+		ga.setReverseOrder(true);
+	}
+
+	@Test
+	public void testStep() {
+		double first = ga.getBest().getFitness();
+		assertEquals(30, ga.getEvaluations());
+		for (int i = 0; i < 2000; i++)
+			ga.step(0.9, 0.02);
+		assertTrue(ga.getBest().getFitness() >= first);
+		assertTrue(ga.getBest().getFitness() >= ga.getWorst().getFitness());
+		assertTrue(ga.getEvaluations() <= 30 + 2 * 2000);
+	}
+
+	@Test
+	public void testIntegrateWorse() {
+		Individual worst = ga.getWorst();
+		Individual child = worst.clone();
+		child.setFitness(worst.getFitness() - 1);
+		assertEquals(false, ga.integrate(child));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIntegrateInvalid() {
+		ga.integrate(new OneMax(40, 7402981).inflateIndividual());
+	}
+}
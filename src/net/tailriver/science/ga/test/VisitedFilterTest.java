@@ -0,0 +1,97 @@
+package net.tailriver.science.ga.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.tailriver.science.ga.Diversity;
+import net.tailriver.science.ga.GeneticAlgorithm;
+import net.tailriver.science.ga.GeneticAlgorithm.RevisitPolicy;
+import net.tailriver.science.ga.Individual;
+import net.tailriver.science.ga.VisitedFilter;
+
+import org.junit.Test;
+
+public class VisitedFilterTest {
+	@Test
+	public void testFalsePositiveRate() {
+		OneMax plan = new OneMax(64, 1);
+		int n = 10000;
+		VisitedFilter filter = new VisitedFilter(n * 10 / 8, 7);
+		Individual[] added = new Individual[n];
+		for (int i = 0; i < n; i++) {
+			added[i] = plan.inflateIndividual();
+			filter.add(added[i]);
+		}
+		for (Individual i : added)
+			assertTrue(filter.mightContain(i));
+
+		int positives = 0;
+		for (int i = 0; i < n; i++) {
+			if (filter.mightContain(plan.inflateIndividual()))
+				positives++;
+		}
+		double estimate = filter.getFalsePositiveRate();
+		assertTrue(estimate > 0.002 && estimate < 0.03);
+		assertTrue(positives < 3 * estimate * n);
+	}
+
+	@Test
+	public void testSkip() {
+		OneMax plan = new OneMax(10, 1);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 30);
+		VisitedFilter filter = new VisitedFilter(1 << 12, 7);
+		ga.setVisitedFilter(filter, RevisitPolicy.SKIP, -1);
+		for (int g = 0; g < 20; g++) {
+			ga.cross(0.8, 0.9);
+			ga.mutate(0.01);
+			ga.select();
+		}
+		ga.getRankAt(1);
+		assertEquals(filter.getCount(), plan.evaluations);
+		assertTrue(plan.evaluations <= 1 << 10);
+		assertFalse(filter.getRevisits() == 0);
+	}
+
+	@Test
+	public void testSkipsEvaluated() {
+		OneMax plan = new OneMax(40, 1);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 20);
+		ga.getRankAt(1);
+
+		// evaluated individuals are new to a filter set afterwards
+		VisitedFilter filter = new VisitedFilter(1 << 12, 7);
+		ga.setVisitedFilter(filter, RevisitPolicy.SKIP, -1);
+		ga.mutate(0);
+		ga.getRankAt(1);
+		assertEquals(20, plan.evaluations);
+		assertEquals(0, filter.getCount());
+	}
+
+	@Test
+	public void testRegenerateMeasured() {
+		OneMax plan = new OneMax(8, 1);
+		GeneticAlgorithm<Individual> ga = new GeneticAlgorithm<>(plan, 30);
+		VisitedFilter filter = new VisitedFilter(1 << 12, 7);
+		ga.setVisitedFilter(filter, RevisitPolicy.REGENERATE, -1);
+		for (int g = 0; g < 10; g++) {
+			ga.mutate(0.2);
+			// measured before regeneration flips bits
+			ga.getDiversity();
+
+			List<Individual> population = new ArrayList<>();
+			for (int r = 1; r <= ga.getSize(); r++)
+				population.add(ga.getRankAt(r));
+			Diversity expected = new Diversity();
+			expected.update(population);
+			Diversity actual = ga.getDiversity();
+			for (int b = 0; b < 8; b++)
+				assertEquals(expected.getAlleleFrequency(b),
+						actual.getAlleleFrequency(b), 0);
+		}
+		assertFalse(filter.getRevisits() == 0);
+	}
+}